@@ -16,19 +16,37 @@
 
 package com.gwtplatform.crawler.server;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
-import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -38,11 +56,239 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.inject.Inject;
+
 /**
  * Servlet that makes this application crawlable.
  */
 @Singleton
 public final class CrawlFilter implements Filter {
+    /**
+     * Outcome of a single request to the crawl service.
+     */
+    private static final class PollResult {
+        private static final PollResult NOT_MODIFIED = new PollResult(null, -1, null, true);
+
+        private final byte[] page;
+        private final long retryAfterMillis;
+        private final String etag;
+        private final boolean notModified;
+
+        private PollResult(byte[] page, long retryAfterMillis) {
+            this(page, retryAfterMillis, null, false);
+        }
+
+        private PollResult(byte[] page, long retryAfterMillis, String etag, boolean notModified) {
+            this.page = page;
+            this.retryAfterMillis = retryAfterMillis;
+            this.etag = etag;
+            this.notModified = notModified;
+        }
+
+        /**
+         * @return The delay before polling again: the crawl service's hint if it sent one, {@code backoffMillis}
+         * otherwise.
+         */
+        long getDelayMillis(long backoffMillis) {
+            return retryAfterMillis >= 0 ? retryAfterMillis : backoffMillis;
+        }
+    }
+
+    /**
+     * Polls the crawl service from the scheduler until the page is rendered, backing off between attempts.
+     */
+    private abstract class ScheduledPoll implements Runnable {
+        final String pageName;
+        final URL serviceRequest;
+        private final FetchCoalescer.Flight flight;
+        private final long startedAt = System.currentTimeMillis();
+        private long delayMillis = INITIAL_POLL_DELAY_MILLIS;
+
+        /**
+         * @param flight The flight to complete once the page is fetched, can be {@code null}.
+         */
+        ScheduledPoll(String pageName, URL serviceRequest, FetchCoalescer.Flight flight) {
+            this.pageName = pageName;
+            this.serviceRequest = serviceRequest;
+            this.flight = flight;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                fetchCoalescer.fail(flight, new CancellationException("Fetch cancelled: " + pageName));
+                return;
+            }
+            if (scheduler.isShutdown()) {
+                abort(new CancellationException("Crawl filter destroyed: " + pageName));
+                return;
+            }
+
+            try {
+                PollResult result = poll(serviceRequest, getETag());
+                if (result.notModified) {
+                    notModifiedCount.increment(1);
+                    onNotModified();
+                } else if (result.page != null) {
+                    fetchMillis.record(System.currentTimeMillis() - startedAt);
+                    snapshotCache.put(pageName, result.page, result.etag);
+                    fetchCoalescer.complete(flight, result.page);
+                    onPage(result.page);
+                } else {
+                    schedule(this, result.getDelayMillis(delayMillis));
+                    delayMillis = Math.min(delayMillis * 2, MAX_POLL_DELAY_MILLIS);
+                }
+            } catch (IOException | RuntimeException e) {
+                fetchFailedCount.increment(1);
+                log.log(Level.WARNING, "Crawl filter failed to fetch " + serviceRequest, e);
+                fetchCoalescer.fail(flight, e);
+                onFailure();
+            }
+        }
+
+        /**
+         * Gives up on the page, because the filter was destroyed.
+         */
+        void abort(RuntimeException e) {
+            log.log(Level.FINE, "Crawl filter destroyed, giving up on {0}", pageName);
+            fetchCoalescer.fail(flight, e);
+            onFailure();
+        }
+
+        /**
+         * Delivers a page fetched by another request.
+         */
+        void deliver(byte[] page) {
+            try {
+                onPage(page);
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.WARNING, "Crawl filter failed to write " + pageName, e);
+                onFailure();
+            }
+        }
+
+        /**
+         * @return The entity tag of the version of the page already held, or {@code null}.
+         */
+        String getETag() {
+            return null;
+        }
+
+        /**
+         * Called when the crawl service confirms the version matching {@link #getETag()} is still current.
+         */
+        void onNotModified() {
+            onFailure();
+        }
+
+        abstract boolean isCancelled();
+
+        abstract void onPage(byte[] page) throws IOException;
+
+        abstract void onFailure();
+    }
+
+    /**
+     * Completes an asynchronous response once the page is rendered. The response is claimed through
+     * {@code completed} by whichever comes first: the page, a failure or the timeout. Writing the page and completing
+     * the response are synchronized, so a timeout never completes the response while a page is being written.
+     */
+    private class AsyncPoll extends ScheduledPoll implements AsyncListener {
+        private final AsyncContext asyncContext;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        AsyncPoll(AsyncContext asyncContext, String pageName, URL serviceRequest, FetchCoalescer.Flight flight) {
+            super(pageName, serviceRequest, flight);
+            this.asyncContext = asyncContext;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.log(Level.WARNING, "Crawl filter timed out waiting for {0}", serviceRequest);
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        @Override
+        boolean isCancelled() {
+            return completed.get();
+        }
+
+        @Override
+        synchronized void onPage(byte[] page) throws IOException {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    asyncContext.getResponse().getOutputStream().write(page);
+                    bytesServed.increment(page.length);
+                } finally {
+                    asyncContext.complete();
+                    log.fine("Crawl filter exiting, no chaining.");
+                }
+            }
+        }
+
+        @Override
+        void onFailure() {
+            complete();
+        }
+
+        private synchronized void complete() {
+            if (completed.compareAndSet(false, true)) {
+                asyncContext.complete();
+                log.fine("Crawl filter exiting, no chaining.");
+            }
+        }
+    }
+
+    /**
+     * Fetches a new version of a stale page in the background.
+     */
+    private class RefreshPoll extends ScheduledPoll {
+        private final SnapshotCache.Snapshot snapshot;
+
+        RefreshPoll(SnapshotCache.Snapshot snapshot, String pageName, URL serviceRequest) {
+            super(pageName, serviceRequest, null);
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        String getETag() {
+            return snapshot.getETag();
+        }
+
+        @Override
+        void onNotModified() {
+            snapshotCache.revalidate(pageName, snapshot);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        void onPage(byte[] page) {
+        }
+
+        @Override
+        void onFailure() {
+            snapshot.refreshFailed();
+        }
+    }
+
     private static final String CHAR_ENCODING = "UTF-8";
 
     /**
@@ -59,17 +305,73 @@ public final class CrawlFilter implements Filter {
     private static final int ESCAPED_FRAGMENT_LENGTH1 = ESCAPED_FRAGMENT_FORMAT1.length();
     private static final int ESCAPED_FRAGMENT_LENGTH2 = ESCAPED_FRAGMENT_FORMAT2.length();
 
+    /**
+     * Version of the crawl service protocol requested by this filter. Services that support it hold each request for
+     * up to {@link #LONG_POLL_WAIT_MILLIS} while the page is rendered and confirm it with {@link #PROTOCOL_HEADER}.
+     */
+    private static final int LONG_POLL_PROTOCOL = 2;
+    private static final long LONG_POLL_WAIT_MILLIS = 5000;
+    private static final String PROTOCOL_HEADER = "X-Crawl-Protocol";
+
+    /**
+     * Response sent by legacy crawl services while the page is still being rendered.
+     */
+    private static final byte[] FETCH_IN_PROGRESS = "FETCH_IN_PROGRESS".getBytes(StandardCharsets.UTF_8);
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int POLL_THREADS = 8;
+    private static final long ASYNC_TIMEOUT_MILLIS = 60000;
+    private static final long INITIAL_POLL_DELAY_MILLIS = 100;
+    private static final long MAX_POLL_DELAY_MILLIS = 2000;
+
+    /**
+     * Maximum number of requests waiting on another request's fetch of the same page.
+     */
+    private static final int MAX_FOLLOWERS = 100;
+    private static final long FOLLOWER_TIMEOUT_MILLIS = 30000;
+
     private final String serviceUrl;
     private final String key;
+    private final CrawlServiceTransport transport;
+    private final SnapshotCache snapshotCache;
+    private final FetchCoalescer fetchCoalescer = new FetchCoalescer(MAX_FOLLOWERS);
     private final Logger log;
+    private final MetricsRegistry.Histogram fetchMillis;
+    private final MetricsRegistry.Counter fetchFailedCount;
+    private final MetricsRegistry.Counter notModifiedCount;
+    private final MetricsRegistry.Counter bytesServed;
+
+    @Inject(optional = true)
+    @AsyncMode
+    private boolean asyncMode;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(POLL_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "CrawlFilter-poll");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Inject
     CrawlFilter(@ServiceUrl String serviceUrl,
                 @ServiceKey String key,
+                CrawlServiceTransport transport,
+                SnapshotCache snapshotCache,
+                MetricsRegistry metricsRegistry,
                 Logger log) {
         this.serviceUrl = serviceUrl;
         this.key = key;
+        this.transport = transport;
+        this.snapshotCache = snapshotCache;
         this.log = log;
+
+        fetchMillis = metricsRegistry.histogram("fetch.millis");
+        fetchFailedCount = metricsRegistry.counter("fetch.failed");
+        notModifiedCount = metricsRegistry.counter("fetch.notModified");
+        bytesServed = metricsRegistry.counter("response.bytes");
+        metricsRegistry.gauge("snapshot.hits", snapshotCache::getHitCount);
+        metricsRegistry.gauge("snapshot.staleHits", snapshotCache::getStaleHitCount);
+        metricsRegistry.gauge("snapshot.misses", snapshotCache::getMissCount);
+        metricsRegistry.gauge("snapshot.evictions", snapshotCache::getEvictionCount);
     }
 
     /**
@@ -110,10 +412,81 @@ public final class CrawlFilter implements Filter {
     }
 
     /**
-     * Destroys the filter configuration.
+     * Reads the page returned by the crawl service, byte for byte.
+     *
+     * @param in The body of the crawl service response.
+     * @return The page.
+     * @throws IOException
+     */
+    private static byte[] readRenderedPage(InputStream in) throws IOException {
+        ByteArrayOutputStream page = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            page.write(buffer, 0, read);
+        }
+        return page.toByteArray();
+    }
+
+    /**
+     * Reads the {@code Retry-After} header sent by the crawl service.
+     *
+     * @return The delay in milliseconds, {@code -1} if the header is missing or is not a number of seconds.
+     */
+    private static long parseRetryAfter(String retryAfter) {
+        try {
+            return retryAfter == null ? -1 : TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isFetchInProgress(BufferedInputStream in) throws IOException {
+        in.mark(FETCH_IN_PROGRESS.length + 2);
+        try {
+            for (byte expected : FETCH_IN_PROGRESS) {
+                if (in.read() != expected) {
+                    return false;
+                }
+            }
+            int next = in.read();
+            if (next == '\r') {
+                next = in.read();
+            }
+            return next == '\n' || next == -1;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code ifNoneMatch} lists {@code etag}, using the weak comparison.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String entityTag : ifNoneMatch.split(",")) {
+            String candidate = entityTag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || opaqueTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Destroys the filter configuration. Polls in progress give up instead of polling again, and new requests are no
+     * longer handled asynchronously.
      */
     @Override
     public void destroy() {
+        scheduler.shutdown();
     }
 
     /**
@@ -127,70 +500,48 @@ public final class CrawlFilter implements Filter {
         HttpServletResponse res = (HttpServletResponse) response;
         String queryString = req.getQueryString();
 
-        // Only process calls to the main HTML page, and the empty one if desired
-        final String requestURI = req.getRequestURI();
-
         // Does this request contain an _escaped_fragment_?
         if (queryString != null && queryString.contains(ESCAPED_FRAGMENT_FORMAT1)) {
             res.setHeader("Content-Type", "text/html; charset=" + CHAR_ENCODING);
             res.setCharacterEncoding(CHAR_ENCODING);
 
-            PrintWriter writer = res.getWriter();
+            String pageName = buildPageName(req, queryString);
+            URL serviceRequest = buildServiceRequest(pageName);
+
+            SnapshotCache.Snapshot snapshot = snapshotCache.get(pageName);
+            if (snapshot != null) {
+                if (snapshotCache.isStale(snapshot) && snapshot.startRefresh()) {
+                    schedule(new RefreshPoll(snapshot, pageName, serviceRequest), 0);
+                }
+                writeSnapshot(req, res, snapshot);
+                return;
+            }
+
+            if (asyncMode && req.isAsyncSupported() && !scheduler.isShutdown()) {
+                startAsyncPoll(req, pageName, serviceRequest);
+                return;
+            }
+
+            FetchCoalescer.Flight flight = fetchCoalescer.join(pageName);
+
+            OutputStream out = res.getOutputStream();
             try {
-                StringBuilder pageNameSb = new StringBuilder(req.getScheme() + "://");
-                pageNameSb.append(req.getServerName());
-                if (req.getServerPort() != 0) {
-                    pageNameSb.append(":");
-                    pageNameSb.append(req.getServerPort());
+                byte[] page = null;
+                if (flight != null && !flight.isLeader()) {
+                    page = awaitLeader(flight);
                 }
-                pageNameSb.append(requestURI);
-                queryString = rewriteQueryString(queryString);
-                pageNameSb.append(queryString);
-                String pageName = pageNameSb.toString();
-
-                log.info("Crawl filter encountered escaped fragment, will open: " + pageName);
-
-                String serviceRequest = serviceUrl + "?key=" + URLEncoder.encode(key, CHAR_ENCODING)
-                                        + "&url=" + URLEncoder.encode(pageName, CHAR_ENCODING);
-
-                log.info("Full service request: " + serviceRequest);
-
-                // Retry until we're cut off
-                while (true) {
-                    BufferedReader reader = null;
-                    try {
-                        URL url = new URL(serviceRequest);
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                        connection.setConnectTimeout(10000);
-                        connection.setReadTimeout(10000);
-                        connection.setRequestProperty("charset", CHAR_ENCODING);
-                        reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), CHAR_ENCODING));
-                        String line;
-                        line = reader.readLine();
-                        if (!"FETCH_IN_PROGRESS".equals(line)) {
-                            writer.println(line);
-                            while ((line = reader.readLine()) != null) {
-                                writer.println(line);
-                            }
-                            break;
-                        }
-                    } catch (IOException exception) {
-                        if (!exception.getMessage().contains("Timeout")) {
-                            throw exception;
-                        }
-                    } finally {
-                        if (reader != null) {
-                            reader.close();
-                        }
-                    }
+                if (page == null) {
+                    page = fetch(pageName, serviceRequest, flight);
                 }
+                out.write(page);
+                bytesServed.increment(page.length);
             } catch (IOException e) {
-                e.printStackTrace();
+                log.log(Level.WARNING, "Crawl filter failed to fetch " + serviceRequest, e);
             } finally {
-                writer.close();
+                out.close();
             }
 
-            log.info("Crawl filter exiting, no chaining.");
+            log.fine("Crawl filter exiting, no chaining.");
         } else {
             chain.doFilter(request, response);
         }
@@ -199,4 +550,193 @@ public final class CrawlFilter implements Filter {
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
     }
+
+    private String buildPageName(HttpServletRequest req, String queryString) throws IOException {
+        StringBuilder pageNameSb = new StringBuilder(req.getScheme() + "://");
+        pageNameSb.append(req.getServerName());
+        if (req.getServerPort() != 0) {
+            pageNameSb.append(":");
+            pageNameSb.append(req.getServerPort());
+        }
+        // Only process calls to the main HTML page, and the empty one if desired
+        pageNameSb.append(req.getRequestURI());
+        pageNameSb.append(rewriteQueryString(queryString));
+        String pageName = pageNameSb.toString();
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Crawl filter encountered escaped fragment, will open: " + pageName);
+        }
+
+        return pageName;
+    }
+
+    private URL buildServiceRequest(String pageName) throws IOException {
+        String serviceRequest = serviceUrl + "?key=" + URLEncoder.encode(key, CHAR_ENCODING)
+                                + "&url=" + URLEncoder.encode(pageName, CHAR_ENCODING)
+                                + "&protocol=" + LONG_POLL_PROTOCOL + "&wait=" + LONG_POLL_WAIT_MILLIS;
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Full service request: " + serviceRequest);
+        }
+
+        return new URL(serviceRequest);
+    }
+
+    /**
+     * Issues a single request to the crawl service. Services that understand the long-poll protocol hold the request
+     * until the page is rendered and report their status in headers. Older services answer immediately with
+     * {@code FETCH_IN_PROGRESS} as the body.
+     * <p/>
+     * Pages are requested gzip-compressed. If {@code etag} is set and the page didn't change, the service answers
+     * {@code 304 Not Modified} without a body. An overloaded service answers {@code 503 Service Unavailable}, which is
+     * retried like a page that is not ready yet, after the delay given by its {@code Retry-After} header.
+     *
+     * @param etag The entity tag of the version of the page already held, can be {@code null}.
+     * @return The rendered page, or a result without a page if the page is not ready yet or didn't change.
+     */
+    private PollResult poll(URL serviceRequest, String etag) throws IOException {
+        Map<String, String> requestHeaders = new HashMap<>();
+        requestHeaders.put("Accept-Encoding", "gzip");
+        if (etag != null) {
+            requestHeaders.put("If-None-Match", etag);
+        }
+
+        try (CrawlServiceResponse response = transport.open(serviceRequest, requestHeaders)) {
+            if (response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return PollResult.NOT_MODIFIED;
+            }
+            if (response.getStatus() == HttpURLConnection.HTTP_UNAVAILABLE) {
+                log.log(Level.INFO, "Crawl service is overloaded, retrying: {0}", serviceRequest);
+                return new PollResult(null, parseRetryAfter(response.getHeader("Retry-After")));
+            }
+
+            InputStream body = response.getBody();
+            if ("gzip".equalsIgnoreCase(response.getHeader("Content-Encoding"))) {
+                body = new GZIPInputStream(body, BUFFER_SIZE);
+            }
+
+            if (response.getHeader(PROTOCOL_HEADER) != null) {
+                if (response.getStatus() == HttpURLConnection.HTTP_ACCEPTED) {
+                    return new PollResult(null, parseRetryAfter(response.getHeader("Retry-After")));
+                }
+                return new PollResult(readRenderedPage(body), -1, response.getHeader("ETag"), false);
+            }
+
+            BufferedInputStream in = new BufferedInputStream(body, BUFFER_SIZE);
+            if (isFetchInProgress(in)) {
+                return new PollResult(null, -1);
+            }
+            return new PollResult(readRenderedPage(in), -1);
+        } catch (SocketTimeoutException exception) {
+            log.log(Level.INFO, "Crawl service timed out, retrying: {0}", serviceRequest);
+            return new PollResult(null, -1);
+        }
+    }
+
+    private void writeSnapshot(HttpServletRequest req, HttpServletResponse res, SnapshotCache.Snapshot snapshot)
+            throws IOException {
+        res.setHeader("Vary", "Accept-Encoding");
+
+        String etag = snapshot.getETag();
+        if (etag != null) {
+            res.setHeader("ETag", etag);
+            if (matchesETag(req.getHeader("If-None-Match"), etag)) {
+                res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        try (OutputStream out = res.getOutputStream()) {
+            String acceptEncoding = req.getHeader("Accept-Encoding");
+            if (snapshot.isCompressed() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                res.setHeader("Content-Encoding", "gzip");
+                bytesServed.increment(snapshot.writeRawTo(out));
+            } else {
+                bytesServed.increment(snapshot.writeTo(out));
+            }
+        }
+    }
+
+    /**
+     * Polls the crawl service until the page is rendered, then stores it and completes {@code flight}.
+     *
+     * @param flight The flight led by this request, can be {@code null}.
+     */
+    private byte[] fetch(String pageName, URL serviceRequest, FetchCoalescer.Flight flight) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        try {
+            long delayMillis = INITIAL_POLL_DELAY_MILLIS;
+            PollResult result;
+            // Retry until we're cut off
+            while ((result = poll(serviceRequest, null)).page == null) {
+                log.fine("Crawl service fetch in progress, retrying.");
+                Thread.sleep(result.getDelayMillis(delayMillis));
+                delayMillis = Math.min(delayMillis * 2, MAX_POLL_DELAY_MILLIS);
+            }
+            fetchMillis.record(System.currentTimeMillis() - startedAt);
+            snapshotCache.put(pageName, result.page, result.etag);
+            fetchCoalescer.complete(flight, result.page);
+            return result.page;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fetchCoalescer.fail(flight, e);
+            throw new InterruptedIOException("Interrupted while waiting for the crawl service.");
+        } catch (IOException | RuntimeException e) {
+            fetchFailedCount.increment(1);
+            fetchCoalescer.fail(flight, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the leader of {@code flight} to fetch the page.
+     *
+     * @return The rendered page, or {@code null} if the leader failed or took too long.
+     */
+    private byte[] awaitLeader(FetchCoalescer.Flight flight) throws IOException {
+        try {
+            return flight.getResult().get(FOLLOWER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a concurrent fetch.");
+        } catch (ExecutionException | TimeoutException e) {
+            log.log(Level.INFO, "Concurrent fetch did not complete, fetching on our own: {0}", e);
+            return null;
+        }
+    }
+
+    private void startAsyncPoll(HttpServletRequest req, String pageName, URL serviceRequest) {
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(ASYNC_TIMEOUT_MILLIS);
+
+        FetchCoalescer.Flight flight = fetchCoalescer.join(pageName);
+        boolean leader = flight == null || flight.isLeader();
+
+        AsyncPoll asyncPoll = new AsyncPoll(asyncContext, pageName, serviceRequest, leader ? flight : null);
+        asyncContext.addListener(asyncPoll);
+
+        if (leader) {
+            schedule(asyncPoll, 0);
+        } else {
+            flight.getResult().whenComplete((page, failure) -> {
+                if (page != null) {
+                    asyncPoll.deliver(page);
+                } else {
+                    schedule(asyncPoll, 0);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs {@code poll} on the scheduler after {@code delayMillis}. Once the filter is destroyed, the poll is aborted
+     * instead.
+     */
+    private void schedule(ScheduledPoll poll, long delayMillis) {
+        try {
+            scheduler.schedule(poll, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            poll.abort(e);
+        }
+    }
 }
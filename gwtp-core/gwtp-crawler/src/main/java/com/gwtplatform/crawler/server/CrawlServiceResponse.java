@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response received from the crawl service through a {@link CrawlServiceTransport}. Closing the response releases
+ * the underlying connection.
+ */
+public class CrawlServiceResponse implements Closeable {
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    /**
+     * @param status  The HTTP status code.
+     * @param headers The response headers, can be {@code null}.
+     * @param body    The body of the response.
+     */
+    public CrawlServiceResponse(int status, Map<String, List<String>> headers, InputStream body) {
+        this.status = status;
+        this.headers = headers == null ? Collections.<String, List<String>>emptyMap() : headers;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param name The name of the header, case insensitive.
+     * @return The first value of the header, or {@code null} if the response doesn't contain it.
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
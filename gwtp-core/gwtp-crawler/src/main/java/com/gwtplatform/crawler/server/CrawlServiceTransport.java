@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Transport used by {@link CrawlFilter} to talk to the crawl service. The default implementation,
+ * {@link HttpCrawlServiceTransport}, keeps connections alive between requests and bounds the number of concurrent
+ * connections opened to the service. To use a custom transport, bind it in your module. For example:
+ * <pre>bind(CrawlServiceTransport.class).toInstance(new HttpCrawlServiceTransport(32, 8, 10000));
+ * </pre>
+ */
+@ImplementedBy(HttpCrawlServiceTransport.class)
+public interface CrawlServiceTransport {
+    /**
+     * Opens a request to the crawl service and returns the response. The caller <b>must</b> close the returned
+     * response, closing it releases the underlying connection so it can be reused.
+     * <p/>
+     * A {@code 503 Service Unavailable} response is returned rather than thrown, so the caller can honour its
+     * {@code Retry-After} header.
+     *
+     * @param serviceRequest The full URL of the service request.
+     * @return The response.
+     * @throws IOException If the request could not be completed.
+     */
+    default CrawlServiceResponse open(URL serviceRequest) throws IOException {
+        return open(serviceRequest, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Same as {@link #open(URL)}, sending additional request headers.
+     *
+     * @param serviceRequest The full URL of the service request.
+     * @param requestHeaders The headers to add to the request.
+     * @return The response.
+     * @throws IOException If the request could not be completed.
+     */
+    CrawlServiceResponse open(URL serviceRequest, Map<String, String> requestHeaders) throws IOException;
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes concurrent requests for the same page share a single fetch from the crawl service. The first request for a
+ * page becomes the leader of a {@link Flight} and is responsible for completing it. Later requests follow the flight
+ * and receive the leader's result.
+ * <p/>
+ * A flight accepts at most {@code maxFollowers} followers. Requests beyond that limit are not coalesced and must fetch
+ * the page on their own.
+ */
+final class FetchCoalescer {
+    /**
+     * A fetch in progress for a single page.
+     */
+    static final class Flight {
+        private final String pageName;
+        private final boolean leader;
+        private final CompletableFuture<byte[]> result;
+        private final AtomicInteger followers;
+
+        private Flight(String pageName) {
+            this.pageName = pageName;
+            this.leader = true;
+            this.result = new CompletableFuture<>();
+            this.followers = new AtomicInteger();
+        }
+
+        private Flight(Flight leaderFlight) {
+            this.pageName = leaderFlight.pageName;
+            this.leader = false;
+            this.result = leaderFlight.result;
+            this.followers = leaderFlight.followers;
+        }
+
+        /**
+         * @return {@code true} if the caller must fetch the page and complete this flight.
+         */
+        boolean isLeader() {
+            return leader;
+        }
+
+        CompletableFuture<byte[]> getResult() {
+            return result;
+        }
+    }
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final int maxFollowers;
+
+    FetchCoalescer(int maxFollowers) {
+        this.maxFollowers = maxFollowers;
+    }
+
+    /**
+     * Joins the fetch in progress for {@code pageName}, or starts a new one.
+     *
+     * @return The flight to lead or follow, or {@code null} if the flight in progress has too many followers.
+     */
+    Flight join(String pageName) {
+        Flight flight = new Flight(pageName);
+        Flight inProgress = flights.putIfAbsent(pageName, flight);
+        if (inProgress == null) {
+            return flight;
+        }
+
+        if (inProgress.followers.incrementAndGet() > maxFollowers) {
+            inProgress.followers.decrementAndGet();
+            return null;
+        }
+        return new Flight(inProgress);
+    }
+
+    /**
+     * Completes a flight with the rendered page. Only the leader may complete a flight.
+     */
+    void complete(Flight flight, byte[] page) {
+        if (flight != null && flight.leader) {
+            flights.remove(flight.pageName, flight);
+            flight.result.complete(page);
+        }
+    }
+
+    /**
+     * Fails a flight. Its followers are expected to fetch the page on their own. Only the leader may fail a flight.
+     */
+    void fail(Flight flight, Throwable cause) {
+        if (flight != null && flight.leader) {
+            flights.remove(flight.pageName, flight);
+            flight.result.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Default {@link CrawlServiceTransport}. Connections are kept alive and reused through the JDK's HTTP keep-alive
+ * cache, which requires every response body to be fully consumed before the stream is closed. This transport takes
+ * care of draining what the caller didn't read.
+ * <p/>
+ * The number of connections opened at the same time is bounded globally and per route (scheme, host and port). A
+ * request that can't obtain a connection within the timeout fails with a {@link SocketTimeoutException}.
+ * <p/>
+ * Error statuses fail with an {@link IOException}, except {@code 503 Service Unavailable}. The crawl service sheds load
+ * with that status, so it is returned to the caller along with its {@code Retry-After} header.
+ * <p/>
+ * Note that the JDK only keeps {@code http.maxConnections} idle connections per route (5 by default). If you raise
+ * {@code maxConnectionsPerRoute}, you should raise that system property as well.
+ */
+@Singleton
+public class HttpCrawlServiceTransport implements CrawlServiceTransport {
+    /**
+     * Drains the response when closed so the JDK can put the connection back in its keep-alive cache, then releases
+     * the permits held for this connection.
+     */
+    private class PooledInputStream extends FilterInputStream {
+        private final Semaphore route;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        PooledInputStream(InputStream in, Semaphore route) {
+            super(in);
+            this.route = route;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    drainAndClose(in);
+                } finally {
+                    release(route);
+                }
+            }
+        }
+    }
+
+    private static final String CHAR_ENCODING = "UTF-8";
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 10000;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final Semaphore connections;
+    private final ConcurrentMap<String, Semaphore> routes = new ConcurrentHashMap<>();
+    private final int maxConnectionsPerRoute;
+    private final int timeoutMillis;
+
+    @Inject
+    HttpCrawlServiceTransport() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param maxConnections         The maximum number of connections opened at the same time.
+     * @param maxConnectionsPerRoute The maximum number of connections opened at the same time to a single route.
+     * @param timeoutMillis          The timeout used when waiting for a connection, connecting and reading.
+     */
+    public HttpCrawlServiceTransport(int maxConnections, int maxConnectionsPerRoute, int timeoutMillis) {
+        this.connections = new Semaphore(maxConnections, true);
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public CrawlServiceResponse open(URL serviceRequest, Map<String, String> requestHeaders) throws IOException {
+        Semaphore route = getRoute(serviceRequest);
+
+        acquire(connections, serviceRequest);
+        try {
+            acquire(route, serviceRequest);
+        } catch (IOException e) {
+            connections.release();
+            throw e;
+        }
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) serviceRequest.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty("charset", CHAR_ENCODING);
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_UNAVAILABLE) {
+                InputStream errorStream = connection.getErrorStream();
+                return new CrawlServiceResponse(status, connection.getHeaderFields(), new PooledInputStream(
+                        errorStream == null ? new ByteArrayInputStream(new byte[0]) : errorStream, route));
+            }
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                InputStream errorStream = connection.getErrorStream();
+                if (errorStream != null) {
+                    drainAndClose(errorStream);
+                }
+                throw new IOException("Crawl service responded with status " + status);
+            }
+
+            return new CrawlServiceResponse(status, connection.getHeaderFields(),
+                    new PooledInputStream(connection.getInputStream(), route));
+        } catch (IOException | RuntimeException e) {
+            release(route);
+            throw e;
+        }
+    }
+
+    private Semaphore getRoute(URL serviceRequest) {
+        String routeKey = serviceRequest.getProtocol() + "://" + serviceRequest.getHost() + ":"
+                + serviceRequest.getPort();
+
+        Semaphore route = routes.get(routeKey);
+        if (route == null) {
+            Semaphore newRoute = new Semaphore(maxConnectionsPerRoute, true);
+            route = routes.putIfAbsent(routeKey, newRoute);
+            if (route == null) {
+                route = newRoute;
+            }
+        }
+        return route;
+    }
+
+    private void acquire(Semaphore semaphore, URL serviceRequest) throws IOException {
+        try {
+            if (!semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException("Timed out waiting for a connection to " + serviceRequest.getHost());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + serviceRequest.getHost(), e);
+        }
+    }
+
+    private void release(Semaphore route) {
+        route.release();
+        connections.release();
+    }
+
+    private static void drainAndClose(InputStream inputStream) throws IOException {
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int drained = 0;
+            int read;
+            while (drained < MAX_DRAIN_BYTES && (read = inputStream.read(buffer)) != -1) {
+                drained += read;
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+}
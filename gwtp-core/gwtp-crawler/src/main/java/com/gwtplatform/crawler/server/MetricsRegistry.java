@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Registry of the metrics recorded by the {@link CrawlFilter} and by the crawl service. Metrics are created once, when
+ * the component recording them is created, so recording a value never allocates.
+ * <p/>
+ * The default implementation, {@link SimpleMetricsRegistry}, keeps the metrics in memory. To forward them to a
+ * monitoring system, bind your own implementation in your module. For example:
+ * <pre>bind(MetricsRegistry.class).to(MyMetricsRegistry.class);
+ * </pre>
+ */
+@ImplementedBy(SimpleMetricsRegistry.class)
+public interface MetricsRegistry {
+    /**
+     * A monotonic count of events.
+     */
+    interface Counter {
+        void increment(long delta);
+    }
+
+    /**
+     * A distribution of values, such as durations in milliseconds or sizes in bytes.
+     */
+    interface Histogram {
+        void record(long value);
+    }
+
+    /**
+     * @param name The name of the counter.
+     * @return The counter named {@code name}, created if it doesn't exist.
+     * @throws IllegalArgumentException If {@code name} is registered as another kind of metric.
+     */
+    Counter counter(String name);
+
+    /**
+     * @param name The name of the histogram.
+     * @return The histogram named {@code name}, created if it doesn't exist.
+     * @throws IllegalArgumentException If {@code name} is registered as another kind of metric.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Registers a value read when the metrics are reported, replacing any gauge with the same name.
+     *
+     * @param name  The name of the gauge.
+     * @param value Reads the current value.
+     * @throws IllegalArgumentException If {@code name} is registered as another kind of metric.
+     */
+    void gauge(String name, LongSupplier value);
+
+    /**
+     * Writes the current value of all metrics, one per line. Implementations that export the metrics by other means
+     * may write nothing.
+     */
+    void report(Appendable out) throws IOException;
+}
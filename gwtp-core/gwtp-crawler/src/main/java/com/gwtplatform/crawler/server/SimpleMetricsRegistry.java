@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.inject.Singleton;
+
+/**
+ * Keeps metrics in memory. Histograms count values in power of two buckets, so the reported percentiles are upper
+ * bounds within a factor of two of the actual values.
+ * <p/>
+ * Counters, histograms and gauges share a single namespace. Registering a name already used by another kind of metric
+ * fails right away rather than when a value is recorded.
+ */
+@Singleton
+public class SimpleMetricsRegistry implements MetricsRegistry {
+    private static class SimpleCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment(long delta) {
+            count.add(delta);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(count.sum());
+        }
+    }
+
+    private static class SimpleHistogram implements Histogram {
+        private static final int BUCKETS = 64;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        @Override
+        public void record(long value) {
+            long positiveValue = Math.max(value, 0);
+            count.increment();
+            sum.add(positiveValue);
+            max.accumulate(positiveValue);
+            buckets.incrementAndGet(Math.min(BUCKETS - Long.numberOfLeadingZeros(positiveValue), BUCKETS - 1));
+        }
+
+        @Override
+        public String toString() {
+            long total = count.sum();
+            long mean = total == 0 ? 0 : sum.sum() / total;
+            return "count=" + total + " mean=" + mean + " p50=" + percentile(total, 50) + " p90="
+                    + percentile(total, 90) + " p99=" + percentile(total, 99) + " max=" + max.get();
+        }
+
+        private long percentile(long total, int percent) {
+            long rank = (total * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS && rank > 0; ++i) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(getUpperBound(i), max.get());
+                }
+            }
+            return 0;
+        }
+
+        private long getUpperBound(int bucket) {
+            return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name) {
+        return getOrCreate(name, Counter.class, SimpleCounter::new);
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return getOrCreate(name, Histogram.class, SimpleHistogram::new);
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        metrics.compute(name, (key, current) -> {
+            if (current != null && !(current instanceof LongSupplier)) {
+                throw newKindMismatch(name, current, "gauge");
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void report(Appendable out) throws IOException {
+        SortedMap<String, Object> sortedMetrics = new TreeMap<>(metrics);
+        for (Map.Entry<String, Object> metric : sortedMetrics.entrySet()) {
+            Object value = metric.getValue();
+            out.append(metric.getKey()).append(' ');
+            if (value instanceof LongSupplier) {
+                out.append(String.valueOf(((LongSupplier) value).getAsLong()));
+            } else {
+                out.append(value.toString());
+            }
+            out.append('\n');
+        }
+    }
+
+    private <T> T getOrCreate(String name, Class<T> type, Supplier<T> factory) {
+        Object metric = metrics.computeIfAbsent(name, key -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw newKindMismatch(name, metric, type == Counter.class ? "counter" : "histogram");
+        }
+        return type.cast(metric);
+    }
+
+    private IllegalArgumentException newKindMismatch(String name, Object metric, String kind) {
+        String registeredKind = metric instanceof Counter ? "counter"
+                : metric instanceof Histogram ? "histogram" : "gauge";
+        return new IllegalArgumentException("Can't register the " + kind + " '" + name
+                + "', the name is already used by a " + registeredKind + ".");
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In-process cache of the pages rendered by the crawl service, used by {@link CrawlFilter} to answer repeated
+ * requests for the same page without a round trip. Pages are keyed by the URL sent to the crawl service.
+ * <p/>
+ * The cache holds at most {@code maxEntries} pages and evicts the least recently used one when full. A page is fresh
+ * for {@code ttlMillis} after it was stored. For {@code staleMillis} after that, it is still served while
+ * {@link CrawlFilter} fetches a new version in the background. Pages can optionally be stored gzip-compressed.
+ * <p/>
+ * To customize the cache, bind your own instance. For example:
+ * <pre>bind(SnapshotCache.class).toInstance(new SnapshotCache(1000, 600000, 60000, true));
+ * </pre>
+ * Use {@code new SnapshotCache(0, 0, 0, false)} to disable caching.
+ */
+@Singleton
+public class SnapshotCache {
+    /**
+     * A page stored in the cache.
+     */
+    public static final class Snapshot {
+        private final byte[] content;
+        private final boolean compressed;
+        private final long storedAt;
+        private final String etag;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Snapshot(byte[] content, boolean compressed, long storedAt, String etag) {
+            this.content = content;
+            this.compressed = compressed;
+            this.storedAt = storedAt;
+            this.etag = etag;
+        }
+
+        /**
+         * @return The entity tag sent by the crawl service for this page, or {@code null} if it didn't send one.
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * @return {@code true} if the content is stored gzip-compressed.
+         */
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        /**
+         * Writes the page, as stored, to {@code out}. The content is gzip-compressed if {@link #isCompressed()}.
+         *
+         * @return The number of bytes written.
+         */
+        public long writeRawTo(OutputStream out) throws IOException {
+            out.write(content);
+            return content.length;
+        }
+
+        /**
+         * Writes the uncompressed page to {@code out}.
+         *
+         * @return The number of bytes written.
+         */
+        public long writeTo(OutputStream out) throws IOException {
+            if (!compressed) {
+                out.write(content);
+                return content.length;
+            }
+
+            long written = 0;
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content), BUFFER_SIZE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+            }
+            return written;
+        }
+
+        boolean isFresh(long now, long ttlMillis) {
+            return now < storedAt + ttlMillis;
+        }
+
+        /**
+         * @return {@code true} if the caller is responsible for refreshing this snapshot.
+         */
+        boolean startRefresh() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        void refreshFailed() {
+            refreshing.set(false);
+        }
+    }
+
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+    private static final long DEFAULT_STALE_MILLIS = 60 * 1000;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final boolean compress;
+    private final Map<String, Snapshot> snapshots;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @Inject
+    SnapshotCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, DEFAULT_STALE_MILLIS, true);
+    }
+
+    /**
+     * @param maxEntries  The maximum number of pages kept in the cache. {@code 0} disables the cache.
+     * @param ttlMillis   How long a page is served without contacting the crawl service.
+     * @param staleMillis How long a page is still served, while being refreshed, once it's no longer fresh.
+     * @param compress    {@code true} to store pages gzip-compressed.
+     */
+    public SnapshotCache(int maxEntries, long ttlMillis, long staleMillis, boolean compress) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.compress = compress;
+        this.snapshots = new LinkedHashMap<String, Snapshot>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                if (size() > SnapshotCache.this.maxEntries) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a page in the cache.
+     *
+     * @param pageName The URL of the page.
+     * @return The cached page, or {@code null} if the page is not cached or has expired.
+     */
+    public Snapshot get(String pageName) {
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(pageName);
+
+            if (snapshot != null && !snapshot.isFresh(System.currentTimeMillis(), ttlMillis + staleMillis)) {
+                snapshots.remove(pageName);
+                evictionCount.incrementAndGet();
+                snapshot = null;
+            }
+        }
+
+        if (snapshot == null) {
+            missCount.incrementAndGet();
+        } else if (isStale(snapshot)) {
+            staleHitCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return {@code true} if {@code snapshot} should be refreshed before it expires.
+     */
+    public boolean isStale(Snapshot snapshot) {
+        return !snapshot.isFresh(System.currentTimeMillis(), ttlMillis);
+    }
+
+    /**
+     * Stores a page in the cache, replacing any previous version.
+     *
+     * @param pageName The URL of the page.
+     * @param page     The rendered page.
+     */
+    public void put(String pageName, byte[] page) throws IOException {
+        put(pageName, page, null);
+    }
+
+    /**
+     * Stores a page in the cache, replacing any previous version.
+     *
+     * @param pageName The URL of the page.
+     * @param page     The rendered page.
+     * @param etag     The entity tag of the page, can be {@code null}.
+     */
+    public void put(String pageName, byte[] page, String etag) throws IOException {
+        if (maxEntries <= 0) {
+            return;
+        }
+
+        Snapshot snapshot = new Snapshot(compress ? gzip(page) : page, compress, System.currentTimeMillis(), etag);
+        synchronized (snapshots) {
+            snapshots.put(pageName, snapshot);
+        }
+    }
+
+    /**
+     * Marks {@code snapshot} as fresh again, after the crawl service confirmed it didn't change. Does nothing if
+     * {@code snapshot} was replaced or evicted in the meantime.
+     *
+     * @param pageName The URL of the page.
+     * @param snapshot The snapshot to renew.
+     */
+    public void revalidate(String pageName, Snapshot snapshot) {
+        Snapshot renewed = new Snapshot(snapshot.content, snapshot.compressed, System.currentTimeMillis(),
+                snapshot.etag);
+        synchronized (snapshots) {
+            if (snapshots.get(pageName) == snapshot) {
+                snapshots.put(pageName, renewed);
+            }
+        }
+    }
+
+    /**
+     * @return The number of lookups answered with a fresh page.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of lookups answered with a stale page.
+     */
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    /**
+     * @return The number of lookups that found no usable page.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of pages removed because the cache was full or because they expired.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static byte[] gzip(byte[] page) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(page.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, BUFFER_SIZE)) {
+            out.write(page);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CrawlFilterTest {
+    /**
+     * Answers the requests of the filter with the responses queued by the test, waiting for them if necessary.
+     */
+    private static class FakeTransport implements CrawlServiceTransport {
+        private final BlockingQueue<CrawlServiceResponse> responses = new LinkedBlockingQueue<>();
+        private final List<Map<String, String>> requests = new CopyOnWriteArrayList<>();
+
+        void respond(int status, String body, String... headers) {
+            Map<String, List<String>> headerMap = new HashMap<>();
+            for (int i = 0; i < headers.length; i += 2) {
+                headerMap.put(headers[i], Collections.singletonList(headers[i + 1]));
+            }
+            responses.add(new CrawlServiceResponse(status, headerMap,
+                    new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+        }
+
+        @Override
+        public CrawlServiceResponse open(URL serviceRequest, Map<String, String> requestHeaders) throws IOException {
+            requests.add(new HashMap<>(requestHeaders));
+            try {
+                CrawlServiceResponse response = responses.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (response == null) {
+                    throw new IOException("No response queued for " + serviceRequest);
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        void awaitRequests(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (requests.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, requests.size());
+        }
+    }
+
+    /**
+     * A request to the filter and the response it produced.
+     */
+    private static class Exchange {
+        private final HttpServletRequest request = mock(HttpServletRequest.class);
+        private final HttpServletResponse response = mock(HttpServletResponse.class);
+        private final AsyncContext asyncContext = mock(AsyncContext.class);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        Exchange(boolean asyncSupported) throws IOException {
+            when(request.getQueryString()).thenReturn("_escaped_fragment_=home");
+            when(request.getScheme()).thenReturn("http");
+            when(request.getServerName()).thenReturn("example.com");
+            when(request.getRequestURI()).thenReturn("/index.html");
+            when(request.isAsyncSupported()).thenReturn(asyncSupported);
+            when(request.startAsync()).thenReturn(asyncContext);
+            when(asyncContext.getResponse()).thenReturn(response);
+            doAnswer(invocation -> {
+                completed.countDown();
+                return null;
+            }).when(asyncContext).complete();
+            when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    output.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            });
+        }
+
+        void awaitCompletion() throws InterruptedException {
+            assertTrue("Response not completed", completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        String getContent() {
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final String PAGE = "<html>Rendered</html>";
+
+    private final FakeTransport transport = new FakeTransport();
+    private CrawlFilter filter;
+
+    @After
+    public void tearDown() {
+        if (filter != null) {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void legacyServiceIsPolledUntilThePageIsRendered() throws IOException, ServletException {
+        createFilter(new SnapshotCache(), false);
+        transport.respond(200, "FETCH_IN_PROGRESS\n");
+        transport.respond(200, PAGE);
+
+        Exchange exchange = doFilter(false);
+
+        assertEquals(PAGE, exchange.getContent());
+        assertEquals(2, transport.requests.size());
+        assertEquals("gzip", transport.requests.get(0).get("Accept-Encoding"));
+    }
+
+    @Test
+    public void longPollIsRetriedUntilThePageIsRendered() throws IOException, ServletException {
+        createFilter(new SnapshotCache(), false);
+        transport.respond(202, "", "X-Crawl-Protocol", "2", "Retry-After", "0");
+        transport.respond(503, "", "Retry-After", "0");
+        transport.respond(200, PAGE, "X-Crawl-Protocol", "2");
+
+        Exchange exchange = doFilter(false);
+
+        assertEquals(PAGE, exchange.getContent());
+        assertEquals(3, transport.requests.size());
+    }
+
+    @Test
+    public void cachedPageIsServedWithoutContactingTheService() throws IOException, ServletException {
+        createFilter(new SnapshotCache(), false);
+        transport.respond(200, PAGE, "X-Crawl-Protocol", "2", "ETag", "\"v1\"");
+        doFilter(false);
+
+        Exchange exchange = doFilter(false);
+
+        assertEquals(PAGE, exchange.getContent());
+        assertEquals(1, transport.requests.size());
+        verify(exchange.response).setHeader("Vary", "Accept-Encoding");
+        verify(exchange.response).setHeader("ETag", "\"v1\"");
+    }
+
+    @Test
+    public void cachedPageMatchingTheETagIsNotModified() throws IOException, ServletException {
+        createFilter(new SnapshotCache(), false);
+        transport.respond(200, PAGE, "X-Crawl-Protocol", "2", "ETag", "\"v1\"");
+        doFilter(false);
+
+        Exchange exchange = new Exchange(false);
+        when(exchange.request.getHeader("If-None-Match")).thenReturn("W/\"v1\"");
+        filter.doFilter(exchange.request, exchange.response, mock(FilterChain.class));
+
+        verify(exchange.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("", exchange.getContent());
+    }
+
+    @Test
+    public void stalePageIsServedWhileItIsRevalidated() throws IOException, ServletException, InterruptedException {
+        createFilter(new SnapshotCache(10, 0, TimeUnit.MINUTES.toMillis(1), true), false);
+        transport.respond(200, PAGE, "X-Crawl-Protocol", "2", "ETag", "\"v1\"");
+        doFilter(false);
+        transport.respond(304, "");
+
+        Exchange exchange = doFilter(false);
+
+        assertEquals(PAGE, exchange.getContent());
+        transport.awaitRequests(2);
+        assertEquals("\"v1\"", transport.requests.get(1).get("If-None-Match"));
+    }
+
+    @Test
+    public void asyncRequestIsCompletedOnceThePageIsRendered()
+            throws IOException, ServletException, InterruptedException {
+        createFilter(new SnapshotCache(), true);
+        transport.respond(200, "FETCH_IN_PROGRESS\n");
+        transport.respond(200, PAGE);
+
+        Exchange exchange = doFilter(true);
+        exchange.awaitCompletion();
+
+        assertEquals(PAGE, exchange.getContent());
+        verify(exchange.asyncContext).setTimeout(60000);
+    }
+
+    @Test
+    public void concurrentRequestsForTheSamePageShareOneFetch()
+            throws IOException, ServletException, InterruptedException {
+        createFilter(new SnapshotCache(0, 0, 0, false), true);
+        Exchange leader = doFilter(true);
+        Exchange follower = doFilter(true);
+
+        transport.respond(200, PAGE);
+        leader.awaitCompletion();
+        follower.awaitCompletion();
+
+        assertEquals(PAGE, leader.getContent());
+        assertEquals(PAGE, follower.getContent());
+        assertEquals(1, transport.requests.size());
+    }
+
+    @Test
+    public void destroyedFilterGivesUpOnPollsInProgress() throws IOException, ServletException, InterruptedException {
+        createFilter(new SnapshotCache(), true);
+        transport.respond(200, "FETCH_IN_PROGRESS\n");
+        Exchange exchange = doFilter(true);
+        transport.awaitRequests(1);
+
+        filter.destroy();
+        exchange.awaitCompletion();
+
+        assertEquals("", exchange.getContent());
+        assertEquals(1, transport.requests.size());
+    }
+
+    @Test
+    public void destroyedFilterServesRequestsSynchronously() throws IOException, ServletException {
+        createFilter(new SnapshotCache(), true);
+        filter.destroy();
+        transport.respond(200, PAGE);
+
+        Exchange exchange = doFilter(true);
+
+        assertEquals(PAGE, exchange.getContent());
+        verify(exchange.request, never()).startAsync();
+    }
+
+    private void createFilter(SnapshotCache snapshotCache, boolean asyncMode) {
+        filter = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bindConstant().annotatedWith(ServiceUrl.class).to("http://crawl.example.com/service");
+                bindConstant().annotatedWith(ServiceKey.class).to("key");
+                bindConstant().annotatedWith(AsyncMode.class).to(asyncMode);
+                bind(CrawlServiceTransport.class).toInstance(transport);
+                bind(SnapshotCache.class).toInstance(snapshotCache);
+            }
+        }).getInstance(CrawlFilter.class);
+    }
+
+    private Exchange doFilter(boolean asyncSupported) throws IOException, ServletException {
+        Exchange exchange = new Exchange(asyncSupported);
+        filter.doFilter(exchange.request, exchange.response, mock(FilterChain.class));
+        return exchange;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HttpCrawlServiceTransportTest {
+    private static final int TIMEOUT_MILLIS = 500;
+
+    private StubCrawlService service;
+
+    @Before
+    public void setUp() throws IOException {
+        service = new StubCrawlService();
+        service.respond(200, "<html>Rendered</html>");
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void closedResponsesReuseTheirConnection() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(10, 5, TIMEOUT_MILLIS);
+
+        for (int i = 0; i < 3; ++i) {
+            try (CrawlServiceResponse response = transport.open(service.getUrl("localhost"))) {
+                assertEquals("<html>Rendered</html>", read(response.getBody()));
+            }
+        }
+
+        assertEquals(3, service.getRequestCount());
+        assertEquals(1, service.getConnectionCount());
+    }
+
+    @Test
+    public void unreadBodyIsDrainedOnClose() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(10, 5, TIMEOUT_MILLIS);
+
+        transport.open(service.getUrl("localhost")).close();
+        transport.open(service.getUrl("localhost")).close();
+
+        assertEquals(2, service.getRequestCount());
+        assertEquals(1, service.getConnectionCount());
+    }
+
+    @Test
+    public void routeLimitWaitsForAConnectionToBeReleased() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(10, 1, TIMEOUT_MILLIS);
+        CrawlServiceResponse first = transport.open(service.getUrl("localhost"));
+
+        assertOpenTimesOut(transport, service.getUrl("localhost"));
+        transport.open(service.getUrl("127.0.0.1")).close();
+
+        first.close();
+        transport.open(service.getUrl("localhost")).close();
+        assertEquals(3, service.getRequestCount());
+    }
+
+    @Test
+    public void globalLimitAppliesToAllRoutes() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(1, 5, TIMEOUT_MILLIS);
+        CrawlServiceResponse first = transport.open(service.getUrl("localhost"));
+
+        assertOpenTimesOut(transport, service.getUrl("127.0.0.1"));
+
+        first.close();
+        transport.open(service.getUrl("127.0.0.1")).close();
+        assertEquals(2, service.getRequestCount());
+    }
+
+    @Test
+    public void unavailableResponseIsReturnedWithItsRetryAfter() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(1, 1, TIMEOUT_MILLIS);
+        service.respond(503, "Busy");
+        service.setHeader("Retry-After", "7");
+
+        try (CrawlServiceResponse response = transport.open(service.getUrl("localhost"))) {
+            assertEquals(503, response.getStatus());
+            assertEquals("7", response.getHeader("retry-after"));
+            assertEquals("Busy", read(response.getBody()));
+        }
+
+        service.respond(200, "<html>Rendered</html>");
+        try (CrawlServiceResponse response = transport.open(service.getUrl("localhost"))) {
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    @Test
+    public void failedResponseReleasesItsConnection() throws IOException {
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport(1, 1, TIMEOUT_MILLIS);
+        service.respond(500, "Failed");
+
+        try {
+            transport.open(service.getUrl("localhost"));
+            fail("Expected the error status to be thrown");
+        } catch (IOException e) {
+            assertEquals("Crawl service responded with status 500", e.getMessage());
+        }
+
+        service.respond(200, "<html>Rendered</html>");
+        transport.open(service.getUrl("localhost")).close();
+        assertEquals(2, service.getRequestCount());
+    }
+
+    private void assertOpenTimesOut(HttpCrawlServiceTransport transport, URL url) throws IOException {
+        try {
+            transport.open(url).close();
+            fail("Expected the connection limit to be reached");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+    }
+
+    private String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toString("UTF-8");
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SimpleMetricsRegistryTest {
+    private final SimpleMetricsRegistry metricsRegistry = new SimpleMetricsRegistry();
+
+    @Test
+    public void counter_sameNameSameCounter() {
+        // when
+        MetricsRegistry.Counter counter = metricsRegistry.counter("cache.hits");
+
+        // then
+        assertSame(counter, metricsRegistry.counter("cache.hits"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogram_nameUsedByCounter() {
+        // given
+        metricsRegistry.counter("render.load");
+
+        // when
+        metricsRegistry.histogram("render.load");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void counter_nameUsedByGauge() {
+        // given
+        metricsRegistry.gauge("render.active", () -> 2);
+
+        // when
+        metricsRegistry.counter("render.active");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gauge_nameUsedByHistogram() {
+        // given
+        metricsRegistry.histogram("render.load.millis");
+
+        // when
+        metricsRegistry.gauge("render.load.millis", () -> 2);
+    }
+
+    @Test
+    public void gauge_replacesGauge() throws IOException {
+        // given
+        metricsRegistry.gauge("render.active", () -> 2);
+
+        // when
+        metricsRegistry.gauge("render.active", () -> 3);
+
+        // then
+        StringBuilder report = new StringBuilder();
+        metricsRegistry.report(report);
+        assertEquals("render.active 3\n", report.toString());
+    }
+
+    @Test
+    public void report_writesAllMetricsSorted() throws IOException {
+        // given
+        metricsRegistry.counter("cache.hits").increment(3);
+        metricsRegistry.gauge("render.active", () -> 2);
+        MetricsRegistry.Histogram histogram = metricsRegistry.histogram("render.load.millis");
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i);
+        }
+
+        // when
+        StringBuilder report = new StringBuilder();
+        metricsRegistry.report(report);
+
+        // then
+        assertEquals("cache.hits 3\n"
+                + "render.active 2\n"
+                + "render.load.millis count=100 mean=50 p50=63 p90=100 p99=100 max=100\n", report.toString());
+    }
+}
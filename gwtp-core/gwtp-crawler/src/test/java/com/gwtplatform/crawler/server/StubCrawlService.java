@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server standing in for the crawl service. It answers every request with the same status, headers and
+ * body, and records the client ports it was called from to tell how many connections were opened.
+ */
+class StubCrawlService implements Closeable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Map<String, String> headers = new ConcurrentHashMap<>();
+    private volatile int status = 200;
+    private volatile byte[] body = new byte[0];
+
+    StubCrawlService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    void respond(int status, String body) {
+        respond(status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void respond(int status, byte[] body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    /**
+     * @param host The host name used to reach the service, different host names are different routes.
+     */
+    URL getUrl(String host) throws MalformedURLException {
+        return new URL("http://" + host + ":" + server.getAddress().getPort() + "/service");
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    int getConnectionCount() {
+        return clientPorts.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestBody().close();
+
+        byte[] responseBody = body;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        }
+        exchange.sendResponseHeaders(status, responseBody.length == 0 ? -1 : responseBody.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(responseBody);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares {@link HttpCrawlServiceTransport} with the fetch {@link CrawlFilter} used before it: a new
+ * {@link HttpURLConnection} per request whose body is copied line by line through a reader and a writer. Both fetch a
+ * rendered page from a local {@link StubCrawlService} from several threads at once, and report the time per fetch and
+ * the number of connections the service saw.
+ * <p/>
+ * Run it with {@code java -cp <test classpath> com.gwtplatform.crawler.server.TransportBenchmark [fetches] [threads]}.
+ */
+public class TransportBenchmark {
+    private interface Fetcher {
+        int fetch(URL url) throws IOException;
+    }
+
+    private static final String CHAR_ENCODING = "UTF-8";
+    private static final int PAGE_LINES = 2000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        int fetches = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        HttpCrawlServiceTransport transport = new HttpCrawlServiceTransport();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            run("legacy", TransportBenchmark::fetchLegacy, executor, fetches, threads);
+            run("pooled", url -> fetchPooled(transport, url), executor, fetches, threads);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(String name, Fetcher fetcher, ExecutorService executor, int fetches, int threads)
+            throws Exception {
+        try (StubCrawlService service = new StubCrawlService()) {
+            service.respond(200, createPage());
+            URL url = service.getUrl("localhost");
+
+            for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+                measure(fetcher, url, executor, fetches, threads);
+            }
+
+            double total = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+                total += measure(fetcher, url, executor, fetches, threads);
+            }
+
+            System.out.println(String.format(Locale.ROOT, "%s: %.1f us/fetch, %d connections for %d fetches",
+                    name, total / MEASURED_ROUNDS / 1000, service.getConnectionCount(), service.getRequestCount()));
+        }
+    }
+
+    private static double measure(Fetcher fetcher, URL url, ExecutorService executor, int fetches, int threads)
+            throws InterruptedException, ExecutionException {
+        int fetchesPerThread = fetches / threads;
+        List<Future<Integer>> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; ++t) {
+            results.add(executor.submit(() -> {
+                int length = 0;
+                for (int i = 0; i < fetchesPerThread; ++i) {
+                    length += fetcher.fetch(url);
+                }
+                return length;
+            }));
+        }
+
+        int length = 0;
+        for (Future<Integer> result : results) {
+            length += result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = length;
+        return (double) elapsed / (fetchesPerThread * threads);
+    }
+
+    private static int fetchLegacy(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(10000);
+        connection.setRequestProperty("charset", CHAR_ENCODING);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+                CHAR_ENCODING));
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, CHAR_ENCODING))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.println(line);
+            }
+        }
+        return output.size();
+    }
+
+    private static int fetchPooled(HttpCrawlServiceTransport transport, URL url) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CrawlServiceResponse response = transport.open(url)) {
+            InputStream body = response.getBody();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.size();
+    }
+
+    private static String createPage() {
+        StringBuilder page = new StringBuilder("<html><body>\n");
+        for (int i = 0; i < PAGE_LINES; ++i) {
+            page.append("<div class=\"item\">Rendered item ").append(i).append(" \u00e9</div>\n");
+        }
+        return page.append("</body></html>\n").toString();
+    }
+}
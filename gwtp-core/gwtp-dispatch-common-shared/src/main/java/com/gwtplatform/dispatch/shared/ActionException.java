@@ -39,4 +39,12 @@ public class ActionException extends Exception {
         super(cause.getMessage());
     }
 
+    /**
+     * Subclasses representing expected business failures can pass {@code false} for {@code writableStackTrace} to skip
+     * the capture of a stack trace. Stack traces are removed before an exception is sent to the client anyway.
+     */
+    protected ActionException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
 }
@@ -21,12 +21,23 @@ import javax.inject.Singleton;
 
 import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
 
 @Singleton
 public class DispatchImpl extends AbstractDispatchImpl {
 
-    @Inject
     public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
         super(actionHandlerValidatorRegistry);
     }
+
+    public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry, ResultCache resultCache) {
+        super(actionHandlerValidatorRegistry, resultCache);
+    }
+
+    @Inject
+    public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry, ResultCache resultCache,
+            DispatchMetrics metrics) {
+        super(actionHandlerValidatorRegistry, resultCache, metrics);
+    }
 }
@@ -25,6 +25,10 @@ import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHand
 import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.ActionHandlerValidatorLinker;
 import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
 import com.gwtplatform.dispatch.rpc.server.guice.request.DefaultRequestProvider;
+import com.gwtplatform.dispatch.rpc.server.guice.resultcache.ResultCacheImpl;
+import com.gwtplatform.dispatch.rpc.server.metrics.DisabledDispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
 
 /**
  * This module will configure the implementation for the {@link Dispatch} and {@link ActionHandlerValidatorRegistry}
@@ -32,14 +36,20 @@ import com.gwtplatform.dispatch.rpc.server.guice.request.DefaultRequestProvider;
  * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler ActionHandler} and
  * {@link com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator ActionValidator} will be loaded lazily.
  * <p/>
- * If you want to override the defaults ({@link DispatchImpl}, {@link LazyActionHandlerValidatorRegistryImpl} pass
- * the override values into the constructor for this module and ensure it is installed <b>before</b> any
- * {@link HandlerModule} instances.
+ * If you want to override the defaults ({@link DispatchImpl}, {@link LazyActionHandlerValidatorRegistryImpl},
+ * {@link ResultCacheImpl}, {@link DisabledDispatchMetrics}) pass the override values into the constructor for this
+ * module and ensure it is installed <b>before</b> any {@link HandlerModule} instances. For example, to record
+ * per-action metrics:
+ * <pre>install(new DispatchModule.Builder().metrics(DefaultDispatchMetrics.class).build());
+ * </pre>
+ * The result cache is disabled with {@code resultCache(DisabledResultCache.class)}.
  */
 public class DispatchModule extends AbstractModule {
     private final Class<? extends Dispatch> dispatchClass;
     private final Class<? extends ActionHandlerValidatorRegistry> actionHandlerValidatorRegistryClass;
     private final Class<? extends RequestProvider> requestProviderClass;
+    private final Class<? extends ResultCache> resultCacheClass;
+    private final Class<? extends DispatchMetrics> metricsClass;
 
     /**
      * A DispatchModule builder.
@@ -49,6 +59,8 @@ public class DispatchModule extends AbstractModule {
         private Class<? extends ActionHandlerValidatorRegistry> actionHandlerValidatorRegistryClass =
                 LazyActionHandlerValidatorRegistryImpl.class;
         private Class<? extends RequestProvider> requestProviderClass = DefaultRequestProvider.class;
+        private Class<? extends ResultCache> resultCacheClass = ResultCacheImpl.class;
+        private Class<? extends DispatchMetrics> metricsClass = DisabledDispatchMetrics.class;
 
         public Builder() {
         }
@@ -70,6 +82,16 @@ public class DispatchModule extends AbstractModule {
             return this;
         }
 
+        public Builder resultCache(Class<? extends ResultCache> resultCacheClass) {
+            this.resultCacheClass = resultCacheClass;
+            return this;
+        }
+
+        public Builder metrics(Class<? extends DispatchMetrics> metricsClass) {
+            this.metricsClass = metricsClass;
+            return this;
+        }
+
         public DispatchModule build() {
             return new DispatchModule(this);
         }
@@ -83,6 +105,8 @@ public class DispatchModule extends AbstractModule {
         this.dispatchClass = builder.dispatchClass;
         this.actionHandlerValidatorRegistryClass = builder.actionHandlerValidatorRegistryClass;
         this.requestProviderClass = builder.requestProviderClass;
+        this.resultCacheClass = builder.resultCacheClass;
+        this.metricsClass = builder.metricsClass;
     }
 
     /**
@@ -107,6 +131,8 @@ public class DispatchModule extends AbstractModule {
                 actionHandlerValidatorRegistryClass).in(Singleton.class);
         bind(Dispatch.class).to(dispatchClass).in(Singleton.class);
         bind(RequestProvider.class).to(requestProviderClass).in(Singleton.class);
+        bind(ResultCache.class).to(resultCacheClass).in(Singleton.class);
+        bind(DispatchMetrics.class).to(metricsClass).in(Singleton.class);
 
         // This will bind registered validators and handlers to the registry lazily.
         if (LazyActionHandlerValidatorRegistry.class.isAssignableFrom(actionHandlerValidatorRegistryClass)) {
@@ -16,6 +16,8 @@
 
 package com.gwtplatform.dispatch.rpc.server.guice;
 
+import java.util.Arrays;
+
 import com.google.inject.AbstractModule;
 import com.google.inject.internal.UniqueAnnotations;
 import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
@@ -23,6 +25,7 @@ import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerV
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorMap;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorMapImpl;
 import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.ActionHandlerValidatorWarmUp;
 import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
 import com.gwtplatform.dispatch.rpc.shared.Action;
 import com.gwtplatform.dispatch.rpc.shared.Result;
@@ -84,6 +87,17 @@ public abstract class HandlerModule extends AbstractModule {
                         new ActionHandlerValidatorClass<>(handlerClass, actionValidator)));
     }
 
+    /**
+     * Creates the handlers and validators of the specified actions when the injector is created, instead of when the
+     * actions are first executed. Only applies to a lazy registry. Call it from {@link #configureHandlers()}.
+     *
+     * @param actionClasses The {@link Action} classes to prepare.
+     */
+    @SafeVarargs
+    protected final void warmUp(Class<? extends Action<?>>... actionClasses) {
+        requestInjection(new ActionHandlerValidatorWarmUp(Arrays.asList(actionClasses)));
+    }
+
     @Override
     protected final void configure() {
         install(dispatchModule);
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+
+/**
+ * Creates the handlers and validators of a list of actions when the injector is created, after the
+ * {@link ActionHandlerValidatorLinker} registered them. Use
+ * {@link com.gwtplatform.dispatch.rpc.server.guice.HandlerModule#warmUp(Class[]) HandlerModule#warmUp} to configure it.
+ */
+public class ActionHandlerValidatorWarmUp {
+    private static final Logger LOGGER = Logger.getLogger(ActionHandlerValidatorWarmUp.class.getName());
+
+    private final List<Class<? extends Action<?>>> actionClasses;
+
+    public ActionHandlerValidatorWarmUp(List<Class<? extends Action<?>>> actionClasses) {
+        this.actionClasses = actionClasses;
+    }
+
+    @Inject
+    void warmUp(ActionHandlerValidatorRegistry registry) {
+        if (registry instanceof LazyActionHandlerValidatorRegistry) {
+            int count = ((LazyActionHandlerValidatorRegistry) registry).warmUp(actionClasses);
+            if (count < actionClasses.size() && LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.warning("Only " + count + " of " + actionClasses.size() + " actions could be warmed up, "
+                        + "check that their handlers are bound.");
+            }
+        }
+    }
+}
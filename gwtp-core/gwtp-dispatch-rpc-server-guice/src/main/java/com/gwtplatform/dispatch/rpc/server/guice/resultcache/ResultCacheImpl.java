@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice.resultcache;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.inject.OutOfScopeException;
+import com.google.inject.ProvisionException;
+import com.gwtplatform.dispatch.rpc.server.RequestProvider;
+import com.gwtplatform.dispatch.rpc.server.resultcache.AbstractResultCacheImpl;
+
+/**
+ * This is the default, in-memory implementation of the result cache. It is bound by the {@link
+ * com.gwtplatform.dispatch.rpc.server.guice.DispatchModule DispatchModule}.
+ */
+@Singleton
+public class ResultCacheImpl extends AbstractResultCacheImpl {
+    @Inject
+    ResultCacheImpl(RequestProvider requestProvider) {
+        super(requestProvider);
+    }
+
+    /**
+     * Actions executed outside of a request scope, by the sub-actions of a parallel batch or from the completion of an
+     * asynchronous handler for example, have no user.
+     */
+    @Override
+    protected String getUser() {
+        try {
+            return super.getUser();
+        } catch (OutOfScopeException e) {
+            return null;
+        } catch (ProvisionException e) {
+            if (e.getCause() instanceof OutOfScopeException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.UnsupportedActionException;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JukitoRunner.class)
+public class ActionHierarchyResolutionTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(GreetingAction.class, GreetingActionHandler.class);
+                    bindHandler(NamedAction.class, NamedActionHandler.class);
+                }
+            });
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+
+    @Test
+    public void exactClassIsPreferred() throws ActionException, ServiceException {
+        assertEquals("Hello Bob", dispatch.execute(new GreetingAction("Bob")).get());
+    }
+
+    @Test
+    public void subclassIsHandledByTheHandlerOfItsSuperclass() throws ActionException, ServiceException {
+        assertEquals("Hello Bob", dispatch.execute(new PoliteGreetingAction("Bob")).get());
+        // The second lookup goes through the memoised resolution.
+        assertEquals("Hello Alice", dispatch.execute(new PoliteGreetingAction("Alice")).get());
+    }
+
+    @Test
+    public void actionIsHandledByTheHandlerOfItsInterface() throws ActionException, ServiceException {
+        assertEquals("Goodbye Bob", dispatch.execute(new FarewellAction("Bob")).get());
+    }
+
+    @Test(expected = UnsupportedActionException.class)
+    public void unrelatedActionIsStillUnsupported() throws ActionException, ServiceException {
+        dispatch.execute(new TestAction("Bob"));
+    }
+}
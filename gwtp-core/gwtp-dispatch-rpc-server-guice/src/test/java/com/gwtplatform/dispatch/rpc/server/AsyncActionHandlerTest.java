@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JukitoRunner.class)
+public class AsyncActionHandlerTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(DeferredAction.class, DeferredActionHandler.class);
+                }
+            });
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+    @Inject
+    DispatchServiceImpl service;
+
+    @Test
+    public void resultIsAvailableOnceTheHandlerCompletes() throws Exception {
+        CompletableFuture<SimpleResult<String>> pending = DeferredActionHandler.defer();
+
+        CompletableFuture<SimpleResult<String>> result = dispatch.executeAsync(new DeferredAction())
+                .toCompletableFuture();
+        assertFalse(result.isDone());
+
+        pending.complete(new SimpleResult<>("done"));
+        assertEquals("done", result.get().get());
+    }
+
+    @Test
+    public void synchronousExecutionWaitsForTheHandler() throws ActionException, ServiceException {
+        DeferredActionHandler.defer().complete(new SimpleResult<>("done"));
+
+        assertEquals("done", dispatch.execute(new DeferredAction()).get());
+    }
+
+    @Test
+    public void unexpectedFailureIsSentAsServiceException() throws InterruptedException {
+        CompletableFuture<SimpleResult<String>> pending = DeferredActionHandler.defer();
+
+        CompletableFuture<Result> result = service.executeAsync("", new DeferredAction()).toCompletableFuture();
+        pending.completeExceptionally(new IllegalStateException("unavailable"));
+
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ServiceException.class));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.inject.Inject;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+
+/**
+ * Returns a result that the test completes. The state is static since the registry may hold a handler from a previous
+ * test.
+ */
+public class DeferredActionHandler extends AbstractActionHandler<DeferredAction, SimpleResult<String>>
+        implements AsyncActionHandler<DeferredAction, SimpleResult<String>> {
+    private static volatile CompletableFuture<SimpleResult<String>> pending;
+
+    @Inject
+    DeferredActionHandler() {
+        super(DeferredAction.class);
+    }
+
+    public static CompletableFuture<SimpleResult<String>> defer() {
+        pending = new CompletableFuture<>();
+        return pending;
+    }
+
+    @Override
+    public CompletionStage<SimpleResult<String>> executeAsync(DeferredAction action, ExecutionContext context) {
+        return pending;
+    }
+
+    @Override
+    public void undo(DeferredAction action, SimpleResult<String> result, ExecutionContext context) {
+    }
+}
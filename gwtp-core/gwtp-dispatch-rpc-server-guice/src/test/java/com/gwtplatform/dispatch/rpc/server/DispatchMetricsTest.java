@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchModule;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.server.metrics.ActionMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JukitoRunner.class)
+public class DispatchMetricsTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule(new DispatchModule.Builder().metrics(DefaultDispatchMetrics.class).build()) {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(GreetingAction.class, GreetingActionHandler.class);
+                    bindHandler(RejectedAction.class, RejectedActionHandler.class);
+                    bindHandler(ReferenceDataAction.class, ReferenceDataActionHandler.class,
+                            ToggleActionValidator.class);
+                }
+            });
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+    @Inject
+    DispatchMetrics dispatchMetrics;
+
+    private DefaultDispatchMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = (DefaultDispatchMetrics) dispatchMetrics;
+    }
+
+    @Test
+    public void successfulExecutionsAreCounted() throws ActionException, ServiceException {
+        long count = getCount(GreetingAction.class, Outcome.SUCCESS);
+
+        dispatch.execute(new GreetingAction("World"));
+        dispatch.execute(new GreetingAction("World"));
+
+        ActionMetrics greetings = metrics.getActionMetrics(GreetingAction.class);
+        assertEquals(2, greetings.getCount(Outcome.SUCCESS) - count);
+        assertEquals(0, greetings.getInFlight());
+        assertTrue(greetings.getMaxNanos() > 0);
+    }
+
+    @Test
+    public void failuresAreCountedByOutcome() {
+        long actionExceptions = getCount(RejectedAction.class, Outcome.ACTION_EXCEPTION);
+        long runtimeExceptions = getCount(RejectedAction.class, Outcome.RUNTIME_EXCEPTION);
+        long serviceExceptions = getCount(ReferenceDataAction.class, Outcome.SERVICE_EXCEPTION);
+
+        executeQuietly(new RejectedAction(false));
+        executeQuietly(new RejectedAction(true));
+        ToggleActionValidator.setAccepting(false);
+        try {
+            executeQuietly(new ReferenceDataAction("countries"));
+        } finally {
+            ToggleActionValidator.setAccepting(true);
+        }
+
+        ActionMetrics rejections = metrics.getActionMetrics(RejectedAction.class);
+        ActionMetrics referenceData = metrics.getActionMetrics(ReferenceDataAction.class);
+        assertEquals(1, rejections.getCount(Outcome.ACTION_EXCEPTION) - actionExceptions);
+        assertEquals(1, rejections.getCount(Outcome.RUNTIME_EXCEPTION) - runtimeExceptions);
+        assertEquals(1, referenceData.getCount(Outcome.SERVICE_EXCEPTION) - serviceExceptions);
+        assertEquals(0, rejections.getInFlight());
+    }
+
+    @Test
+    public void percentilesAreBoundedByTheHistogram() {
+        DefaultDispatchMetrics local = new DefaultDispatchMetrics(1, TimeUnit.HOURS);
+        for (int micros = 1; micros <= 100; ++micros) {
+            local.started(SomeAction.class);
+            local.completed(SomeAction.class, TimeUnit.MICROSECONDS.toNanos(micros), Outcome.SUCCESS);
+        }
+
+        ActionMetrics someActions = local.getActionMetrics(SomeAction.class);
+        assertEquals(100, someActions.getCount());
+        assertEquals(64000, someActions.getPercentileNanos(50));
+        assertEquals(100000, someActions.getPercentileNanos(100));
+        assertEquals(50500, someActions.getMeanNanos());
+    }
+
+    @Test
+    public void readingMetricsDoesNotCreateThem() {
+        DefaultDispatchMetrics local = new DefaultDispatchMetrics();
+
+        assertNull(local.getActionMetrics(SomeAction.class));
+        assertFalse(local.getActionMetrics().containsKey(SomeAction.class));
+    }
+
+    @Test
+    public void slowActionLogsAreRateLimited() {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(DefaultDispatchMetrics.class.getName());
+        boolean useParentHandlers = logger.getUseParentHandlers();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+
+        try {
+            DefaultDispatchMetrics local = new DefaultDispatchMetrics(0, TimeUnit.NANOSECONDS);
+            for (int i = 0; i < 100; ++i) {
+                local.started(SomeAction.class);
+                local.completed(SomeAction.class, 1, Outcome.SUCCESS);
+            }
+        } finally {
+            logger.removeHandler(handler);
+            logger.setUseParentHandlers(useParentHandlers);
+        }
+
+        assertEquals(10, records.size());
+    }
+
+    private long getCount(Class<?> actionClass, Outcome outcome) {
+        ActionMetrics actionMetrics = metrics.getActionMetrics(actionClass);
+        return actionMetrics == null ? 0 : actionMetrics.getCount(outcome);
+    }
+
+    private <R extends Result> void executeQuietly(Action<R> action) {
+        try {
+            dispatch.execute(action);
+        } catch (ActionException | ServiceException e) {
+            // Expected
+        }
+    }
+}
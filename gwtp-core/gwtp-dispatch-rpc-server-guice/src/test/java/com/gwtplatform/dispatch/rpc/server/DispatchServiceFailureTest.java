@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JukitoRunner.class)
+public class DispatchServiceFailureTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(RejectedAction.class, RejectedActionHandler.class);
+                }
+            });
+        }
+    }
+
+    private static final int FAILURES = 100;
+
+    @Inject
+    Dispatch dispatch;
+    @Inject
+    RequestProvider requestProvider;
+
+    private final List<LogRecord> records = new ArrayList<>();
+    private DispatchServiceImpl dispatchService;
+
+    @Before
+    public void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        dispatchService = new DispatchServiceImpl(logger, dispatch, requestProvider);
+    }
+
+    @Test
+    public void businessFailureIsSentWithoutStackTrace() throws ServiceException {
+        try {
+            dispatchService.execute(null, new RejectedAction(false));
+            fail();
+        } catch (ActionException e) {
+            assertTrue(e instanceof BusinessRuleException);
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+
+    @Test
+    public void unexpectedFailureIsSentAsServiceExceptionWithoutStackTrace() throws ActionException {
+        try {
+            dispatchService.execute(null, new RejectedAction(true));
+            fail();
+        } catch (ServiceException e) {
+            assertTrue(e.getMessage().endsWith(RejectedActionHandler.MESSAGE));
+            assertEquals(0, e.getStackTrace().length);
+            assertNull(e.getCause());
+        }
+    }
+
+    @Test
+    public void failureLoggingIsRateLimited() throws ServiceException {
+        executeBusinessFailures();
+
+        // The failures may span two intervals on a slow machine.
+        assertTrue(records.size() >= 1 && records.size() <= 20);
+    }
+
+    @Test
+    public void serviceFailuresAreLimitedSeparately() throws ServiceException, ActionException {
+        executeBusinessFailures();
+
+        try {
+            dispatchService.execute(null, new RejectedAction(true));
+            fail();
+        } catch (ServiceException e) {
+            LogRecord last = records.get(records.size() - 1);
+            assertTrue(last.getThrown() instanceof ServiceException);
+        }
+    }
+
+    private void executeBusinessFailures() throws ServiceException {
+        for (int i = 0; i < FAILURES; ++i) {
+            try {
+                dispatchService.execute(null, new RejectedAction(false));
+                fail();
+            } catch (ActionException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.RPCRequest;
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.DispatchService;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the GWT-RPC processing of {@link AbstractDispatchServiceImpl} with mock requests. The payload decoding is
+ * replaced, since these tests have no client to serialize actions.
+ */
+@RunWith(JukitoRunner.class)
+public class DispatchServicePostTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(GreetingAction.class, GreetingActionHandler.class);
+                    bindHandler(DeferredAction.class, DeferredActionHandler.class);
+                }
+            });
+        }
+    }
+
+    private static class TestDispatchService extends DispatchServiceImpl {
+        private static final long serialVersionUID = 1L;
+
+        private Action<?> action;
+        private boolean asyncExecutionEnabled = true;
+        private boolean processedByRemoteServiceServlet;
+
+        TestDispatchService(Dispatch dispatch, RequestProvider requestProvider) {
+            super(Logger.getAnonymousLogger(), dispatch, requestProvider);
+        }
+
+        @Override
+        protected boolean isAsyncExecutionEnabled() {
+            return asyncExecutionEnabled;
+        }
+
+        @Override
+        public String processCall(String payload) throws SerializationException {
+            processedByRemoteServiceServlet = true;
+            return processCall(decodeRequest(payload));
+        }
+
+        @Override
+        protected String readContent(HttpServletRequest request) {
+            return "";
+        }
+
+        @Override
+        RPCRequest decodeRequest(String requestPayload) {
+            try {
+                return new RPCRequest(DispatchService.class.getMethod("execute", String.class, Action.class),
+                        new Object[]{null, action}, new PermissiveSerializationPolicy(), 0);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class OverridingDispatchService extends TestDispatchService {
+        private static final long serialVersionUID = 1L;
+
+        OverridingDispatchService(Dispatch dispatch, RequestProvider requestProvider) {
+            super(dispatch, requestProvider);
+        }
+
+        @Override
+        public Result execute(String cookieSentByRPC, Action<?> action) {
+            return new SimpleResult<>("Overridden");
+        }
+    }
+
+    private static class PermissiveSerializationPolicy extends SerializationPolicy {
+        @Override
+        public boolean shouldDeserializeFields(Class<?> clazz) {
+            return clazz != Object.class;
+        }
+
+        @Override
+        public boolean shouldSerializeFields(Class<?> clazz) {
+            return clazz != Object.class;
+        }
+
+        @Override
+        public void validateDeserialize(Class<?> clazz) throws SerializationException {
+        }
+
+        @Override
+        public void validateSerialize(Class<?> clazz) throws SerializationException {
+        }
+    }
+
+    private static class CapturingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        String getContent() {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+    @Inject
+    RequestProvider requestProvider;
+
+    private final CapturingOutputStream output = new CapturingOutputStream();
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext asyncContext;
+
+    @Before
+    public void setUp() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        asyncContext = mock(AsyncContext.class);
+
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getHeader("X-GWT-Permutation")).thenReturn("permutation");
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(response);
+        when(response.getOutputStream()).thenReturn(output);
+    }
+
+    @Test
+    public void synchronousResultIsWrittenRightAway() throws ServletException, IOException {
+        when(request.isAsyncSupported()).thenReturn(true);
+
+        post(new TestDispatchService(dispatch, requestProvider), new GreetingAction("World"));
+
+        assertTrue(output.getContent(), output.getContent().startsWith("//OK"));
+        assertTrue(output.getContent(), output.getContent().contains("Hello World"));
+        verify(request, never()).startAsync(any(), any());
+    }
+
+    @Test
+    public void asynchronousResultIsWrittenOnceCompleted() throws ServletException, IOException {
+        CompletableFuture<SimpleResult<String>> pending = DeferredActionHandler.defer();
+        when(request.isAsyncSupported()).thenReturn(true);
+
+        post(new TestDispatchService(dispatch, requestProvider), new DeferredAction());
+
+        assertEquals("", output.getContent());
+        verify(asyncContext).setTimeout(60000);
+
+        pending.complete(new SimpleResult<>("Done"));
+
+        assertTrue(output.getContent(), output.getContent().startsWith("//OK"));
+        assertTrue(output.getContent(), output.getContent().contains("Done"));
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    public void asynchronousTimeoutWritesAServiceException() throws ServletException, IOException {
+        DeferredActionHandler.defer();
+        when(request.isAsyncSupported()).thenReturn(true);
+
+        post(new TestDispatchService(dispatch, requestProvider), new DeferredAction());
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(null);
+
+        assertTrue(output.getContent(), output.getContent().startsWith("//EX"));
+        String message = "Timed out executing " + DeferredAction.class.getName();
+        assertTrue(output.getContent(), output.getContent().contains(message));
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    public void requestWithoutAsyncSupportIsProcessedByRemoteServiceServlet() throws ServletException, IOException {
+        CompletableFuture<SimpleResult<String>> pending = DeferredActionHandler.defer();
+        pending.complete(new SimpleResult<>("Done"));
+        TestDispatchService service = new TestDispatchService(dispatch, requestProvider);
+
+        post(service, new DeferredAction());
+
+        assertTrue(output.getContent(), output.getContent().contains("Done"));
+        assertTrue(service.processedByRemoteServiceServlet);
+        verify(request, never()).startAsync(any(), any());
+    }
+
+    @Test
+    public void asyncExecutionIsDisabledByDefault() throws ServletException, IOException {
+        CompletableFuture<SimpleResult<String>> pending = DeferredActionHandler.defer();
+        pending.complete(new SimpleResult<>("Done"));
+        when(request.isAsyncSupported()).thenReturn(true);
+        TestDispatchService service = new TestDispatchService(dispatch, requestProvider);
+        service.asyncExecutionEnabled = false;
+
+        post(service, new DeferredAction());
+
+        assertTrue(output.getContent(), output.getContent().contains("Done"));
+        assertTrue(service.processedByRemoteServiceServlet);
+        verify(request, never()).startAsync(any(), any());
+    }
+
+    @Test
+    public void overriddenExecuteIsCalled() throws ServletException, IOException {
+        DeferredActionHandler.defer();
+        when(request.isAsyncSupported()).thenReturn(true);
+
+        post(new OverridingDispatchService(dispatch, requestProvider), new DeferredAction());
+
+        assertTrue(output.getContent(), output.getContent().contains("Overridden"));
+        verify(request, never()).startAsync(any(), any());
+    }
+
+    private void post(TestDispatchService service, Action<?> action) throws ServletException, IOException {
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        service.init(config);
+        service.action = action;
+
+        service.service(request, response);
+    }
+}
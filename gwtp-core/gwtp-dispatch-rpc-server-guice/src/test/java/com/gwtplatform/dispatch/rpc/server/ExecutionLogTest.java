@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionResult;
+import com.gwtplatform.dispatch.rpc.shared.NoResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExecutionLogTest {
+    private static final int THREADS = 4;
+    private static final int ACTIONS_PER_THREAD = 2000;
+
+    @Test
+    public void concurrentAppendsKeepEveryEntryInOrder() throws InterruptedException {
+        final ExecutionLog log = new ExecutionLog();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<List<SomeAction>> actionsByThread = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; ++t) {
+            final List<SomeAction> actions = new ArrayList<>();
+            for (int i = 0; i < ACTIONS_PER_THREAD; ++i) {
+                actions.add(new SomeAction());
+            }
+            actionsByThread.add(actions);
+
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (SomeAction action : actions) {
+                    log.append(new ActionResult<>(action, new NoResult(), true));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<ExecutionLog.Entry> entries = log.newestFirst();
+        assertEquals(THREADS * ACTIONS_PER_THREAD, log.size());
+        assertEquals(THREADS * ACTIONS_PER_THREAD, entries.size());
+
+        List<List<Object>> loggedByThread = new ArrayList<>();
+        for (int t = 0; t < THREADS; ++t) {
+            loggedByThread.add(new ArrayList<>());
+        }
+        for (int i = 0; i < entries.size(); ++i) {
+            ExecutionLog.Entry entry = entries.get(i);
+            assertEquals(entries.size() - 1 - i, entry.getSequence());
+
+            Object action = entry.getActionResult().getAction();
+            for (int t = 0; t < THREADS; ++t) {
+                if (actionsByThread.get(t).contains(action)) {
+                    loggedByThread.get(t).add(action);
+                }
+            }
+        }
+
+        for (int t = 0; t < THREADS; ++t) {
+            List<Object> logged = loggedByThread.get(t);
+            Collections.reverse(logged);
+            assertEquals(ACTIONS_PER_THREAD, logged.size());
+            for (int i = 0; i < ACTIONS_PER_THREAD; ++i) {
+                assertSame(actionsByThread.get(t).get(i), logged.get(i));
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
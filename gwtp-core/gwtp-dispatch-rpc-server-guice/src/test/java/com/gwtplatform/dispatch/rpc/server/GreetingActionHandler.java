@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+
+public class GreetingActionHandler extends AbstractActionHandler<GreetingAction, SimpleResult<String>> {
+    public GreetingActionHandler() {
+        super(GreetingAction.class);
+    }
+
+    @Override
+    public SimpleResult<String> execute(GreetingAction action, ExecutionContext context) {
+        return new SimpleResult<>("Hello " + action.getName());
+    }
+
+    @Override
+    public void undo(GreetingAction action, SimpleResult<String> result, ExecutionContext context) {
+    }
+}
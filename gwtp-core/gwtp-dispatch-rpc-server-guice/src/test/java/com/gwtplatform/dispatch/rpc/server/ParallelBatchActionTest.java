@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.BatchActionHandler;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.BatchAction.OnException;
+import com.gwtplatform.dispatch.rpc.shared.BatchResult;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JukitoRunner.class)
+public class ParallelBatchActionTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                protected void configureHandlers() {
+                    // BatchActionHandler handles any subclass of BatchAction.
+                    bindHandler(ParallelBatchAction.class, (Class) BatchActionHandler.class);
+                    bindHandler(ProbeAction.class, ProbeActionHandler.class);
+                }
+            });
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+
+    @Test
+    public void resultsMatchTheOrderOfTheActions() throws ActionException, ServiceException {
+        ProbeActionHandler.expectSuccessfulProbes(4);
+
+        BatchResult result = dispatch.execute(new ParallelBatchAction(OnException.ROLLBACK,
+                new ProbeAction(0, false), new ProbeAction(1, false), new ProbeAction(2, false),
+                new ProbeAction(3, false)));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), values(result.getResults()));
+    }
+
+    @Test
+    public void failedActionsHaveANullResultWithContinue() throws ActionException, ServiceException {
+        ProbeActionHandler.expectSuccessfulProbes(2);
+
+        BatchResult result = dispatch.execute(new ParallelBatchAction(OnException.CONTINUE,
+                new ProbeAction(0, false), new ProbeAction(1, true), new ProbeAction(2, false)));
+
+        assertEquals(Arrays.asList(0, null, 2), values(result.getResults()));
+        assertEquals(0, ProbeActionHandler.getUndone().size());
+    }
+
+    @Test
+    public void completedActionsAreRolledBackWhenOneFails() throws ServiceException {
+        ProbeActionHandler.expectSuccessfulProbes(2);
+
+        try {
+            dispatch.execute(new ParallelBatchAction(OnException.ROLLBACK,
+                    new ProbeAction(0, false), new ProbeAction(1, true), new ProbeAction(2, false)));
+            fail();
+        } catch (ActionException e) {
+            assertEquals("Probe 1 failed", e.getMessage());
+        }
+
+        List<Integer> undone = ProbeActionHandler.getUndone();
+        assertEquals(2, undone.size());
+        assertTrue(undone.containsAll(Arrays.asList(0, 2)));
+    }
+
+    @Test
+    public void concurrencyIsBoundedPerBatch() throws ActionException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutionContext context = new CountingExecutionContext() {
+            @Override
+            protected void executing() {
+                int count = running.incrementAndGet();
+                maxRunning.accumulateAndGet(count, Math::max);
+                sleep();
+                running.decrementAndGet();
+            }
+        };
+
+        BatchResult result = new BatchActionHandler(null, 2).execute(newBatch(20), context);
+
+        assertEquals(20, result.getResults().size());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void batchIsExecutedSequentiallyWhenParallelismIsDisabled() throws ActionException {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ExecutionContext context = new CountingExecutionContext() {
+            @Override
+            protected void executing() {
+                threads.add(Thread.currentThread());
+            }
+        };
+
+        BatchResult result = new BatchActionHandler(null, 1).execute(newBatch(5), context);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), values(result.getResults()));
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()));
+    }
+
+    private ParallelBatchAction newBatch(int size) {
+        Action<?>[] actions = new Action<?>[size];
+        for (int i = 0; i < size; ++i) {
+            actions[i] = new ProbeAction(i, false);
+        }
+        return new ParallelBatchAction(OnException.ROLLBACK, actions);
+    }
+
+    /**
+     * Executes probes without the dispatch, so the handler can be tested with a custom configuration.
+     */
+    private abstract static class CountingExecutionContext implements ExecutionContext {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <A extends Action<R>, R extends Result> R execute(A action) {
+            executing();
+            return (R) new SimpleResult<>(((ProbeAction) action).getId());
+        }
+
+        @Override
+        public <A extends Action<R>, R extends Result> void undo(A action, R result) {
+        }
+
+        protected abstract void executing();
+
+        protected void sleep() {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> values(List<Result> results) {
+        Integer[] values = new Integer[results.size()];
+        for (int i = 0; i < values.length; ++i) {
+            Result result = results.get(i);
+            values[i] = result == null ? null : ((SimpleResult<Integer>) result).get();
+        }
+        return Arrays.asList(values);
+    }
+}
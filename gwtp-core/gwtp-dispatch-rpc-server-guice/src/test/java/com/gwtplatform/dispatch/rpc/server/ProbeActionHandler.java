@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Every successful probe waits until all the others have started, so a batch of probes only completes if they are
+ * executed concurrently. Failing probes wait for the successful ones before failing. The state is static since the
+ * registry may hold a handler from a previous test.
+ */
+public class ProbeActionHandler extends AbstractActionHandler<ProbeAction, SimpleResult<Integer>> {
+    private static final List<Integer> undone = new CopyOnWriteArrayList<>();
+    private static CountDownLatch started;
+
+    @Inject
+    ProbeActionHandler() {
+        super(ProbeAction.class);
+    }
+
+    public static void expectSuccessfulProbes(int count) {
+        started = new CountDownLatch(count);
+        undone.clear();
+    }
+
+    public static List<Integer> getUndone() {
+        return undone;
+    }
+
+    @Override
+    public SimpleResult<Integer> execute(ProbeAction action, ExecutionContext context) throws ActionException {
+        if (!action.isFailing()) {
+            started.countDown();
+        }
+        awaitStarted();
+
+        if (action.isFailing()) {
+            throw new ActionException("Probe " + action.getId() + " failed");
+        }
+        return new SimpleResult<>(action.getId());
+    }
+
+    @Override
+    public void undo(ProbeAction action, SimpleResult<Integer> result, ExecutionContext context) {
+        undone.add(result.get());
+    }
+
+    private void awaitStarted() throws ActionException {
+        try {
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new ActionException("Probes were not executed concurrently");
+            }
+        } catch (InterruptedException e) {
+            throw new ActionException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegistryModificationTest {
+    private static class ShoutingGreetingActionHandler
+            extends AbstractActionHandler<GreetingAction, SimpleResult<String>> {
+        ShoutingGreetingActionHandler() {
+            super(GreetingAction.class);
+        }
+
+        @Override
+        public SimpleResult<String> execute(GreetingAction action, ExecutionContext context) {
+            return new SimpleResult<>("HELLO " + action.getName());
+        }
+
+        @Override
+        public void undo(GreetingAction action, SimpleResult<String> result, ExecutionContext context) {
+        }
+    }
+
+    private final ActionValidator validator = action -> true;
+
+    @Test
+    public void registryIsQueriedOnEveryDispatch() throws ActionException, ServiceException {
+        ActionHandlerValidatorRegistry registry = mock(ActionHandlerValidatorRegistry.class);
+        when(registry.getModificationCount()).thenReturn(-1L);
+        when(registry.findActionHandlerValidator(any(GreetingAction.class))).thenReturn(
+                new ActionHandlerValidatorInstance(validator, new GreetingActionHandler()),
+                new ActionHandlerValidatorInstance(validator, new ShoutingGreetingActionHandler()));
+        Dispatch dispatch = new DispatchImpl(registry);
+
+        assertEquals("Hello Bob", dispatch.execute(new GreetingAction("Bob")).get());
+        assertEquals("HELLO Bob", dispatch.execute(new GreetingAction("Bob")).get());
+
+        verify(registry, times(2)).findActionHandlerValidator(any(GreetingAction.class));
+    }
+
+    @Test
+    public void trackedRegistryIsQueriedOncePerModification() throws ActionException, ServiceException {
+        ActionHandlerValidatorRegistry registry = mock(ActionHandlerValidatorRegistry.class);
+        when(registry.getModificationCount()).thenReturn(1L, 1L, 2L);
+        when(registry.findActionHandlerValidator(any(GreetingAction.class))).thenReturn(
+                new ActionHandlerValidatorInstance(validator, new GreetingActionHandler()),
+                new ActionHandlerValidatorInstance(validator, new ShoutingGreetingActionHandler()));
+        Dispatch dispatch = new DispatchImpl(registry);
+
+        assertEquals("Hello Bob", dispatch.execute(new GreetingAction("Bob")).get());
+        assertEquals("Hello Bob", dispatch.execute(new GreetingAction("Bob")).get());
+        assertEquals("HELLO Bob", dispatch.execute(new GreetingAction("Bob")).get());
+
+        verify(registry, times(2)).findActionHandlerValidator(any(GreetingAction.class));
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.shared.NoResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+public class RejectedActionHandler extends AbstractActionHandler<RejectedAction, NoResult> {
+    public static final String MESSAGE = "Rejected";
+
+    public RejectedActionHandler() {
+        super(RejectedAction.class);
+    }
+
+    @Override
+    public NoResult execute(RejectedAction action, ExecutionContext context) throws ActionException {
+        if (action.isUnexpected()) {
+            throw new IllegalStateException(MESSAGE);
+        }
+        throw new BusinessRuleException(MESSAGE);
+    }
+
+    @Override
+    public void undo(RejectedAction action, NoResult result, ExecutionContext context) {
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(JukitoRunner.class)
+public class ResultCacheTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new HandlerModule() {
+                @Override
+                protected void configureHandlers() {
+                    bindHandler(ReferenceDataAction.class, ReferenceDataActionHandler.class,
+                            ToggleActionValidator.class);
+                    bindHandler(UpdateReferenceDataAction.class, UpdateReferenceDataActionHandler.class);
+                }
+            });
+        }
+    }
+
+    @Inject
+    Dispatch dispatch;
+    @Inject
+    ResultCache resultCache;
+    @Inject
+    HttpServletRequest request;
+    @Inject
+    ActionHandlerValidatorRegistry actionHandlerValidatorRegistry;
+
+    private long hits;
+    private long misses;
+
+    @Before
+    public void setUp() {
+        // The cache is shared by the tests of this class.
+        resultCache.clear();
+        hits = resultCache.getHitCount();
+        misses = resultCache.getMissCount();
+        ReferenceDataActionHandler.resetExecutionCount();
+    }
+
+    @After
+    public void tearDown() {
+        ToggleActionValidator.setAccepting(true);
+        when(request.getRemoteUser()).thenReturn(null);
+    }
+
+    @Test
+    public void resultIsCachedByKey() throws ActionException, ServiceException {
+        assertEquals("countries #1", dispatch.execute(new ReferenceDataAction("countries")).get());
+        assertEquals("countries #1", dispatch.execute(new ReferenceDataAction("countries")).get());
+        assertEquals("currencies #2", dispatch.execute(new ReferenceDataAction("currencies")).get());
+
+        assertEquals(1, resultCache.getHitCount() - hits);
+        assertEquals(2, resultCache.getMissCount() - misses);
+    }
+
+    @Test
+    public void disabledCacheIsNeverCalled() throws ActionException, ServiceException {
+        ResultCache disabledCache = mock(ResultCache.class);
+        when(disabledCache.isEnabled()).thenReturn(false);
+        Dispatch uncachedDispatch = new DispatchImpl(actionHandlerValidatorRegistry, disabledCache);
+
+        assertEquals("countries #1", uncachedDispatch.execute(new ReferenceDataAction("countries")).get());
+        assertEquals("countries #2", uncachedDispatch.execute(new ReferenceDataAction("countries")).get());
+        uncachedDispatch.execute(new UpdateReferenceDataAction());
+
+        verify(disabledCache).isEnabled();
+        verifyNoMoreInteractions(disabledCache);
+    }
+
+    @Test
+    public void relatedActionInvalidatesTheResults() throws ActionException, ServiceException {
+        dispatch.execute(new ReferenceDataAction("countries"));
+        dispatch.execute(new UpdateReferenceDataAction());
+
+        assertEquals("countries #2", dispatch.execute(new ReferenceDataAction("countries")).get());
+    }
+
+    @Test
+    public void validatorIsCheckedBeforeTheCache() throws ActionException {
+        try {
+            dispatch.execute(new ReferenceDataAction("countries"));
+            ToggleActionValidator.setAccepting(false);
+
+            dispatch.execute(new ReferenceDataAction("countries"));
+            fail();
+        } catch (ServiceException e) {
+            assertEquals(1, ReferenceDataActionHandler.getExecutionCount());
+            assertEquals(0, resultCache.getHitCount() - hits);
+        }
+    }
+
+    @Test
+    public void userResultsAreNotCachedWithoutUser() throws ActionException, ServiceException {
+        dispatch.execute(new UserReferenceDataAction("preferences"));
+
+        assertEquals("preferences #2", dispatch.execute(new UserReferenceDataAction("preferences")).get());
+        assertEquals(2, resultCache.getMissCount() - misses);
+    }
+
+    @Test
+    public void userResultsAreCachedPerUser() throws ActionException, ServiceException {
+        when(request.getRemoteUser()).thenReturn("alice");
+        assertEquals("preferences #1", dispatch.execute(new UserReferenceDataAction("preferences")).get());
+        when(request.getRemoteUser()).thenReturn("bob");
+        assertEquals("preferences #2", dispatch.execute(new UserReferenceDataAction("preferences")).get());
+
+        when(request.getRemoteUser()).thenReturn("alice");
+        assertEquals("preferences #1", dispatch.execute(new UserReferenceDataAction("preferences")).get());
+        when(request.getRemoteUser()).thenReturn("bob");
+        assertEquals("preferences #2", dispatch.execute(new UserReferenceDataAction("preferences")).get());
+        assertEquals(2, resultCache.getHitCount() - hits);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+
+/**
+ * A validator that accepts or rejects every action, as decided by the test.
+ */
+public class ToggleActionValidator implements ActionValidator {
+    private static volatile boolean accepting = true;
+
+    public static void setAccepting(boolean accepting) {
+        ToggleActionValidator.accepting = accepting;
+    }
+
+    @Override
+    public boolean isValid(Action<? extends Result> action) {
+        return accepting;
+    }
+}
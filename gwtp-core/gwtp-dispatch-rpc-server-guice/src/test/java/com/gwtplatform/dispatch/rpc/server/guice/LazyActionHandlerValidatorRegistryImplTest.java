@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.gwtplatform.dispatch.rpc.server.GreetingAction;
+import com.gwtplatform.dispatch.rpc.server.GreetingActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.TestActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorClass;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.rpc.shared.action.TestResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class LazyActionHandlerValidatorRegistryImplTest {
+    private static final int THREADS = 16;
+
+    @Before
+    public void setUp() {
+        SlowActionHandler.resetInstanceCount();
+        ReentrantActionValidator.resetInstanceCount();
+    }
+
+    @Test
+    public void concurrentLookupsCreateTheHandlerOnce() throws Exception {
+        final LazyActionHandlerValidatorRegistryImpl registry = createRegistry(false);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<ActionHandlerValidatorInstance>> lookups = new ArrayList<>();
+            for (int i = 0; i < THREADS; ++i) {
+                lookups.add(executor.submit(new Callable<ActionHandlerValidatorInstance>() {
+                    @Override
+                    public ActionHandlerValidatorInstance call() throws InterruptedException {
+                        start.await();
+                        return registry.findActionHandlerValidator(new SlowAction());
+                    }
+                }));
+            }
+            start.countDown();
+
+            ActionHandlerValidatorInstance first = lookups.get(0).get();
+            assertNotNull(first);
+            for (Future<ActionHandlerValidatorInstance> lookup : lookups) {
+                assertSame(first, lookup.get());
+            }
+            assertEquals(1, SlowActionHandler.getInstanceCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void warmedUpHandlersAreCreatedWithTheInjector() {
+        LazyActionHandlerValidatorRegistryImpl registry = createRegistry(true);
+
+        assertEquals(1, SlowActionHandler.getInstanceCount());
+        assertNotNull(registry.findActionHandlerValidator(new SlowAction()));
+        assertEquals(1, SlowActionHandler.getInstanceCount());
+    }
+
+    @Test
+    public void validatorIsDroppedWithTheLastActionUsingIt() {
+        LazyActionHandlerValidatorRegistryImpl registry = createRegistry(false);
+        ActionHandlerValidatorClass<GreetingAction, SimpleResult<String>> greetingClass =
+                new ActionHandlerValidatorClass<>(GreetingActionHandler.class, DefaultActionValidator.class);
+        ActionHandlerValidatorClass<TestAction, TestResult> testClass =
+                new ActionHandlerValidatorClass<>(TestActionHandler.class, DefaultActionValidator.class);
+        registry.addActionHandlerValidatorClass(GreetingAction.class, greetingClass);
+        registry.addActionHandlerValidatorClass(TestAction.class, testClass);
+
+        registry.findActionHandlerValidator(new GreetingAction("World"));
+        registry.findActionHandlerValidator(new TestAction(TestActionHandler.MESSAGE));
+        assertNotNull(registry.findActionValidator(DefaultActionValidator.class));
+
+        registry.removeActionHandlerValidatorClass(TestAction.class, testClass);
+        assertNotNull(registry.findActionValidator(DefaultActionValidator.class));
+
+        registry.removeActionHandlerValidatorClass(GreetingAction.class, greetingClass);
+        assertNull(registry.findActionValidator(DefaultActionValidator.class));
+        assertNull(registry.findActionHandlerValidator(new GreetingAction("World")));
+    }
+
+    @Test
+    public void firstRegistrationOfAnActionClassIsKept() {
+        LazyActionHandlerValidatorRegistryImpl registry = createRegistry(false);
+        ActionHandlerValidatorInstance first = registry.findActionHandlerValidator(new SlowAction());
+        long modificationCount = registry.getModificationCount();
+
+        registry.addActionHandlerValidatorClass(SlowAction.class,
+                new ActionHandlerValidatorClass<>(SlowActionHandler.class, DefaultActionValidator.class));
+
+        assertSame(first, registry.findActionHandlerValidator(new SlowAction()));
+        assertEquals(modificationCount, registry.getModificationCount());
+        assertEquals(1, SlowActionHandler.getInstanceCount());
+    }
+
+    @Test(timeout = 10000)
+    public void validatorsCanLookUpActionsUsingTheSameValidator() {
+        AbstractLazyActionHandlerValidatorRegistryImpl registry = new AbstractLazyActionHandlerValidatorRegistryImpl() {
+            @Override
+            protected <B> B getInstance(Class<B> type) {
+                if (type == ReentrantActionValidator.class) {
+                    return type.cast(new ReentrantActionValidator(this));
+                } else if (type == TestActionHandler.class) {
+                    return type.cast(new TestActionHandler());
+                }
+                return type.cast(new GreetingActionHandler());
+            }
+        };
+        registry.addActionHandlerValidatorClass(GreetingAction.class,
+                new ActionHandlerValidatorClass<>(GreetingActionHandler.class, ReentrantActionValidator.class));
+        registry.addActionHandlerValidatorClass(TestAction.class,
+                new ActionHandlerValidatorClass<>(TestActionHandler.class, ReentrantActionValidator.class));
+
+        ActionHandlerValidatorInstance greeting = registry.findActionHandlerValidator(new GreetingAction("World"));
+        ActionHandlerValidatorInstance test =
+                registry.findActionHandlerValidator(new TestAction(TestActionHandler.MESSAGE));
+
+        assertNotNull(greeting);
+        assertNotNull(test);
+        assertSame(test.getActionValidator(), greeting.getActionValidator());
+        assertSame(greeting.getActionValidator(), registry.findActionValidator(ReentrantActionValidator.class));
+    }
+
+    private LazyActionHandlerValidatorRegistryImpl createRegistry(final boolean warmUp) {
+        return (LazyActionHandlerValidatorRegistryImpl) Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(HttpServletRequest.class).toInstance(mock(HttpServletRequest.class));
+            }
+        }, new HandlerModule() {
+            @Override
+            protected void configureHandlers() {
+                bindHandler(SlowAction.class, SlowActionHandler.class);
+                if (warmUp) {
+                    warmUp(SlowAction.class);
+                }
+            }
+        }).getInstance(ActionHandlerValidatorRegistry.class);
+    }
+}
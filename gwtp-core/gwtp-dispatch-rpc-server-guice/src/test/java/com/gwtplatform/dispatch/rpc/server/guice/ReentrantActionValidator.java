@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.TestActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+
+/**
+ * A validator whose first instance looks up another action using the same validator class while it's created, like a
+ * validator depending on a service that dispatches actions.
+ */
+public class ReentrantActionValidator implements ActionValidator {
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    ReentrantActionValidator(ActionHandlerValidatorRegistry registry) {
+        if (instances.incrementAndGet() == 1) {
+            registry.findActionHandlerValidator(new TestAction(TestActionHandler.MESSAGE));
+        }
+    }
+
+    public static void resetInstanceCount() {
+        instances.set(0);
+    }
+
+    @Override
+    public boolean isValid(Action<? extends Result> action) {
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.shared.NoResult;
+
+/**
+ * A handler that takes some time to create and counts its instances.
+ */
+public class SlowActionHandler extends AbstractActionHandler<SlowAction, NoResult> {
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    @Inject
+    SlowActionHandler() throws InterruptedException {
+        super(SlowAction.class);
+
+        instances.incrementAndGet();
+        Thread.sleep(50);
+    }
+
+    public static int getInstanceCount() {
+        return instances.get();
+    }
+
+    public static void resetInstanceCount() {
+        instances.set(0);
+    }
+
+    @Override
+    public NoResult execute(SlowAction action, ExecutionContext context) {
+        return new NoResult();
+    }
+
+    @Override
+    public void undo(SlowAction action, NoResult result, ExecutionContext context) {
+    }
+}
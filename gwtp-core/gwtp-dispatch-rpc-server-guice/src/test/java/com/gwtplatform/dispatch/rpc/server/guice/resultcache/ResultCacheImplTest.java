@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice.resultcache;
+
+import org.junit.Test;
+
+import com.google.inject.OutOfScopeException;
+import com.gwtplatform.dispatch.rpc.server.UserReferenceDataAction;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResultCacheImplTest {
+    @Test
+    public void userResultsAreNotCachedOutsideOfRequestScope() throws ActionException {
+        ResultCacheImpl resultCache = new ResultCacheImpl(() -> {
+            throw new OutOfScopeException("Cannot access scoped object");
+        });
+        UserReferenceDataAction action = new UserReferenceDataAction("preferences");
+
+        assertEquals("loaded", resultCache.get(action, () -> new SimpleResult<>("loaded")).get());
+        assertEquals("loaded", resultCache.get(action, () -> new SimpleResult<>("loaded")).get());
+        assertEquals(2, resultCache.getMissCount());
+    }
+}
@@ -20,13 +20,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
 
 /**
  * Dispatch implementation for spring.
  */
 public class DispatchImpl extends AbstractDispatchImpl {
-    @Autowired
     public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
         super(actionHandlerValidatorRegistry);
     }
+
+    public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry, ResultCache resultCache) {
+        super(actionHandlerValidatorRegistry, resultCache);
+    }
+
+    @Autowired
+    public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry, ResultCache resultCache,
+            DispatchMetrics metrics) {
+        super(actionHandlerValidatorRegistry, resultCache, metrics);
+    }
 }
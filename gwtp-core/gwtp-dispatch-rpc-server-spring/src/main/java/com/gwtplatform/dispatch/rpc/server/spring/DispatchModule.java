@@ -16,6 +16,7 @@
 
 package com.gwtplatform.dispatch.rpc.server.spring;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,16 +27,28 @@ import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import com.gwtplatform.dispatch.rpc.server.Dispatch;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.metrics.DisabledDispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.resultcache.DisabledResultCache;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
 import com.gwtplatform.dispatch.rpc.server.spring.actionhandlervalidator.ActionHandlerValidatorLinker;
 import com.gwtplatform.dispatch.rpc.server.spring.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.spring.resultcache.ResultCacheImpl;
 import com.gwtplatform.dispatch.rpc.server.spring.utils.SpringUtils;
+import com.gwtplatform.dispatch.rpc.shared.Action;
 
 /**
- * Dispatch module spring configuration.
+ * Dispatch module spring configuration. Per-action metrics are not recorded unless a {@link DispatchMetrics}
+ * implementation, such as {@link com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics
+ * DefaultDispatchMetrics}, is passed to the constructor. Results are cached by {@link ResultCacheImpl} unless another
+ * {@link ResultCache} implementation is passed to the constructor. {@link DisabledResultCache} disables the cache.
+ * Subclasses can also override {@link #getResultCache()}.
  */
 public class DispatchModule {
     private final Class<? extends Dispatch> dispatchClass;
     private final Class<? extends ActionHandlerValidatorRegistry> lazyActionHandlerValidatorRegistryClass;
+    private final Class<? extends DispatchMetrics> metricsClass;
+    private final Class<? extends ResultCache> resultCacheClass;
 
     @Autowired
     private ApplicationContext context;
@@ -53,8 +66,23 @@ public class DispatchModule {
 
     public DispatchModule(Class<? extends Dispatch> dispatchClass,
             Class<? extends ActionHandlerValidatorRegistry> lazyActionHandlerValidatorRegistryClass) {
+        this(dispatchClass, lazyActionHandlerValidatorRegistryClass, DisabledDispatchMetrics.class);
+    }
+
+    public DispatchModule(Class<? extends Dispatch> dispatchClass,
+            Class<? extends ActionHandlerValidatorRegistry> lazyActionHandlerValidatorRegistryClass,
+            Class<? extends DispatchMetrics> metricsClass) {
+        this(dispatchClass, lazyActionHandlerValidatorRegistryClass, metricsClass, ResultCacheImpl.class);
+    }
+
+    public DispatchModule(Class<? extends Dispatch> dispatchClass,
+            Class<? extends ActionHandlerValidatorRegistry> lazyActionHandlerValidatorRegistryClass,
+            Class<? extends DispatchMetrics> metricsClass,
+            Class<? extends ResultCache> resultCacheClass) {
         this.dispatchClass = dispatchClass;
         this.lazyActionHandlerValidatorRegistryClass = lazyActionHandlerValidatorRegistryClass;
+        this.metricsClass = metricsClass;
+        this.resultCacheClass = resultCacheClass;
     }
 
     @Autowired
@@ -74,6 +102,12 @@ public class DispatchModule {
         // TODO check this out
         if (LazyActionHandlerValidatorRegistry.class.isAssignableFrom(lazyActionHandlerValidatorRegistryClass)) {
             ActionHandlerValidatorLinker.linkValidators(context, instance);
+
+            List<Class<? extends Action<?>>> warmUpActions = new ArrayList<>();
+            for (HandlerModule handlerModule : handlerModules) {
+                warmUpActions.addAll(handlerModule.getWarmUpActions());
+            }
+            ((LazyActionHandlerValidatorRegistry) instance).warmUp(warmUpActions);
         }
 
         return instance;
@@ -84,6 +118,16 @@ public class DispatchModule {
         return new PropertySourcesPlaceholderConfigurer();
     }
 
+    @Bean
+    public ResultCache getResultCache() {
+        return SpringUtils.getOrCreate(context, resultCacheClass);
+    }
+
+    @Bean
+    public DispatchMetrics getDispatchMetrics() {
+        return SpringUtils.getOrCreate(context, metricsClass);
+    }
+
     @Bean
     public Dispatch getDispatch() {
         return SpringUtils.getOrCreate(context, dispatchClass);
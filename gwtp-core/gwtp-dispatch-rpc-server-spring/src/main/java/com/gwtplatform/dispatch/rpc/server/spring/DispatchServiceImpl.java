@@ -60,7 +60,7 @@ public class DispatchServiceImpl extends AbstractDispatchServiceImpl implements
     @Override
     public void handleRequest(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        doPost(request, response);
+        handlePost(request, response);
     }
 
     @Override
@@ -16,6 +16,10 @@
 
 package com.gwtplatform.dispatch.rpc.server.spring;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Import;
@@ -34,6 +38,8 @@ public abstract class HandlerModule {
     @Autowired
     protected ApplicationContext applicationContext;
 
+    private final List<Class<? extends Action<?>>> warmUpActions = new ArrayList<>();
+
     protected <A extends Action<R>, R extends Result> void bindHandler(Class<A> actionClass,
             Class<? extends ActionHandler<A, R>> handlerClass) {
         SpringUtils.registerBean(applicationContext, new ActionHandlerValidatorMapImpl<>(actionClass,
@@ -49,5 +55,20 @@ public abstract class HandlerModule {
                         actionValidator)));
     }
 
+    /**
+     * Creates the handlers and validators of the specified actions when the registry is created, instead of when the
+     * actions are first executed. Only applies to a lazy registry. Call it from {@link #configureHandlers()}.
+     *
+     * @param actionClasses The {@link Action} classes to prepare.
+     */
+    @SafeVarargs
+    protected final void warmUp(Class<? extends Action<?>>... actionClasses) {
+        warmUpActions.addAll(Arrays.asList(actionClasses));
+    }
+
     protected abstract void configureHandlers();
+
+    List<Class<? extends Action<?>>> getWarmUpActions() {
+        return warmUpActions;
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.spring.resultcache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.gwtplatform.dispatch.rpc.server.RequestProvider;
+import com.gwtplatform.dispatch.rpc.server.resultcache.AbstractResultCacheImpl;
+
+/**
+ * Result cache implementation for spring.
+ */
+public class ResultCacheImpl extends AbstractResultCacheImpl {
+    @Autowired
+    public ResultCacheImpl(RequestProvider requestProvider) {
+        super(requestProvider);
+    }
+
+    /**
+     * Actions executed outside of a request, by a scheduled task for example, have no user.
+     */
+    @Override
+    protected String getUser() {
+        return RequestContextHolder.getRequestAttributes() == null ? null : super.getUser();
+    }
+}
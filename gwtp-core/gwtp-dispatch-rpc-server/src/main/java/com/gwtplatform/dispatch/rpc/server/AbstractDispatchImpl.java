@@ -16,13 +16,19 @@
 
 package com.gwtplatform.dispatch.rpc.server;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
 import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionResult;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+import com.gwtplatform.dispatch.rpc.server.resultcache.ResultCache;
 import com.gwtplatform.dispatch.rpc.shared.Action;
 import com.gwtplatform.dispatch.rpc.shared.Result;
 import com.gwtplatform.dispatch.rpc.shared.ServiceException;
@@ -36,6 +42,14 @@ import com.gwtplatform.dispatch.shared.ActionException;
  * This class is closely related to {@link com.gwtplatform.dispatch.rpc.server.guice.DispatchServiceImpl}.
  * In fact, this class wouldn't be needed, but we use it to workaround a GWT limitation described in
  * {@link com.gwtplatform.dispatch.rpc.shared.DispatchAsync}.
+ * <p/>
+ * When an enabled {@link ResultCache} is provided, the results of
+ * {@link com.gwtplatform.dispatch.rpc.shared.CachedResult cached} actions are looked up in the cache once the action
+ * was accepted by its validator. The results of actions handled by an {@link AsyncActionHandler} are not cached. A
+ * disabled cache is never called, not even to invalidate results.
+ * <p/>
+ * When enabled {@link DispatchMetrics} are provided, the duration and outcome of every execution are reported to
+ * them. Otherwise executions are not measured at all.
  *
  * @see com.gwtplatform.dispatch.rpc.shared.DispatchAsync
  * @see Dispatch
@@ -46,20 +60,25 @@ import com.gwtplatform.dispatch.shared.ActionException;
  */
 public abstract class AbstractDispatchImpl implements Dispatch {
 
+    /**
+     * Execution context that can be used from several threads at once, for example by a handler that executes its
+     * sub-actions in parallel. Such a handler must wait for its sub-actions to complete before returning, so they can
+     * be rolled back.
+     */
     private static class DefaultExecutionContext implements ExecutionContext {
 
-        private final List<ActionResult<?, ?>> actionResults;
+        private final ExecutionLog actionResults;
         private final AbstractDispatchImpl dispatch;
 
         private DefaultExecutionContext(AbstractDispatchImpl dispatch) {
             this.dispatch = dispatch;
-            this.actionResults = new java.util.ArrayList<>();
+            this.actionResults = new ExecutionLog();
         }
 
         @Override
         public <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException {
             R result = dispatch.doExecute(action, this);
-            actionResults.add(new ActionResult<>(action, result, true));
+            actionResults.append(new ActionResult<>(action, result, true));
             return result;
         }
 
@@ -67,20 +86,19 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
                 ServiceException {
             dispatch.doExecute(action, this);
-            actionResults.add(new ActionResult<>(action, result, false));
+            actionResults.append(new ActionResult<>(action, result, false));
         }
 
         /**
-         * Rolls back all logged executed actions.
+         * Rolls back all logged executed actions, from the most recently completed to the oldest.
          *
          * @throws ActionException  If there is an action exception while rolling back.
          * @throws ServiceException If there is a low level problem while rolling back.
          */
         private void rollback() throws ActionException, ServiceException {
             DefaultExecutionContext ctx = new DefaultExecutionContext(dispatch);
-            for (int i = actionResults.size() - 1; i >= 0; i--) {
-                ActionResult<?, ?> actionResult = actionResults.get(i);
-                rollback(actionResult, ctx);
+            for (ExecutionLog.Entry entry : actionResults.newestFirst()) {
+                rollback(entry.getActionResult(), ctx);
             }
         }
 
@@ -95,12 +113,70 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         }
     }
 
+    /**
+     * The handler and validator of an action class, resolved for a given modification count of the registry.
+     */
+    private static final class ResolvedHandler {
+        private final long modificationCount;
+        private final ActionHandlerValidatorInstance handlerValidator;
+
+        private ResolvedHandler(long modificationCount, ActionHandlerValidatorInstance handlerValidator) {
+            this.modificationCount = modificationCount;
+            this.handlerValidator = handlerValidator;
+        }
+    }
+
+    /**
+     * What is reused by every dispatch of an action class. The resolved handler is replaced when the registry is
+     * modified.
+     */
+    private static final class DispatchPlan {
+        private final boolean cached;
+        private volatile ResolvedHandler resolvedHandler;
+
+        private DispatchPlan(boolean cached) {
+            this.cached = cached;
+        }
+    }
+
     private static final String actionValidatorMessage = " couldn't allow access to action : ";
 
     private final ActionHandlerValidatorRegistry actionHandlerValidatorRegistry;
+    private final ResultCache resultCache;
+    private final DispatchMetrics metrics;
+    private final ClassValue<DispatchPlan> dispatchPlans = new ClassValue<DispatchPlan>() {
+        @Override
+        protected DispatchPlan computeValue(Class<?> type) {
+            return new DispatchPlan(resultCache != null && resultCache.isCached(type));
+        }
+    };
 
     protected AbstractDispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
+        this(actionHandlerValidatorRegistry, null);
+    }
+
+    /**
+     * @param actionHandlerValidatorRegistry The registry of the handlers and validators.
+     * @param resultCache                    The cache of the results of cached actions, or {@code null} to never
+     *                                       cache results.
+     */
+    protected AbstractDispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry,
+            ResultCache resultCache) {
+        this(actionHandlerValidatorRegistry, resultCache, null);
+    }
+
+    /**
+     * @param actionHandlerValidatorRegistry The registry of the handlers and validators.
+     * @param resultCache                    The cache of the results of cached actions, or {@code null} to never
+     *                                       cache results.
+     * @param metrics                        The metrics the executions are reported to, or {@code null} to not
+     *                                       measure executions.
+     */
+    protected AbstractDispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry,
+            ResultCache resultCache, DispatchMetrics metrics) {
         this.actionHandlerValidatorRegistry = actionHandlerValidatorRegistry;
+        this.resultCache = resultCache != null && resultCache.isEnabled() ? resultCache : null;
+        this.metrics = metrics != null && metrics.isEnabled() ? metrics : null;
     }
 
     @Override
@@ -114,6 +190,49 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         }
     }
 
+    /**
+     * Executes the action without blocking if its handler is an {@link AsyncActionHandler}, otherwise executes it with
+     * {@link #execute(Action)}. If the action fails, the sub-actions it executed are rolled back before the returned
+     * stage completes.
+     */
+    @Override
+    public <A extends Action<R>, R extends Result> CompletionStage<R> executeAsync(A action) {
+        ActionHandlerValidatorInstance handlerValidator;
+        try {
+            handlerValidator = findHandlerValidator(action);
+        } catch (UnsupportedActionException e) {
+            CompletableFuture<R> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        if (!(handlerValidator.getActionHandler() instanceof AsyncActionHandler)) {
+            return Dispatch.super.executeAsync(action);
+        }
+
+        DefaultExecutionContext ctx = new DefaultExecutionContext(this);
+        CompletableFuture<R> result = new CompletableFuture<>();
+        long start = startMetrics(action);
+        doExecuteAsync(handlerValidator, action, ctx).whenComplete((value, error) -> {
+            if (error == null) {
+                completeMetrics(action, start, Outcome.SUCCESS);
+                invalidateResults(action);
+                result.complete(value);
+                return;
+            }
+
+            Throwable failure = toDispatchException(action, unwrap(error));
+            completeMetrics(action, start, getOutcome(failure));
+            try {
+                ctx.rollback();
+            } catch (ActionException | ServiceException e) {
+                failure = e;
+            }
+            result.completeExceptionally(failure);
+        });
+        return result;
+    }
+
     @Override
     public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
             ServiceException {
@@ -139,40 +258,106 @@ public abstract class AbstractDispatchImpl implements Dispatch {
      */
     private <A extends Action<R>, R extends Result> R doExecute(A action,
             ExecutionContext ctx) throws ActionException, ServiceException {
-        ActionHandler<A, R> handler = findHandler(action);
+        ActionHandlerValidatorInstance handlerValidator = findHandlerValidator(action);
+        if (metrics == null) {
+            return doExecute(handlerValidator, action, ctx);
+        }
 
-        ActionValidator actionValidator = findActionValidator(action);
+        long start = startMetrics(action);
+        Outcome outcome = Outcome.RUNTIME_EXCEPTION;
+        try {
+            R result = doExecute(handlerValidator, action, ctx);
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (ActionException | ServiceException e) {
+            outcome = getOutcome(e);
+            throw e;
+        } finally {
+            completeMetrics(action, start, outcome);
+        }
+    }
+
+    private <A extends Action<R>, R extends Result> R doExecute(ActionHandlerValidatorInstance handlerValidator,
+            A action, ExecutionContext ctx) throws ActionException, ServiceException {
+        ActionHandler<A, R> handler = getHandler(handlerValidator);
+        ActionValidator actionValidator = handlerValidator.getActionValidator();
 
         try {
             if (actionValidator.isValid(action)) {
-                return handler.execute(action, ctx);
+                if (isCached(action)) {
+                    return resultCache.get(action, () -> handler.execute(action, ctx));
+                }
+
+                R result = handler.execute(action, ctx);
+                invalidateResults(action);
+                return result;
             } else {
-                throw new ServiceException(actionValidator.getClass().getName() + actionValidatorMessage + action
-                        .getClass().getName());
+                throw new ServiceException(getInvalidActionMessage(actionValidator, action));
             }
         } catch (ActionException e) {
             throw e;
         } catch (Exception e) {
-            String newMessage = "Service exception executing action \"" + action.getClass().getSimpleName() + "\", " +
-                    "" + e.toString();
-            ServiceException rethrown = new ServiceException(newMessage);
-            rethrown.initCause(e);
-            throw rethrown;
+            throw newServiceException(action, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A extends Action<R>, R extends Result> CompletionStage<R> doExecuteAsync(
+            ActionHandlerValidatorInstance handlerValidator, A action, ExecutionContext ctx) {
+        AsyncActionHandler<A, R> handler = (AsyncActionHandler<A, R>) handlerValidator.getActionHandler();
+        ActionValidator actionValidator = handlerValidator.getActionValidator();
+
+        try {
+            if (actionValidator.isValid(action)) {
+                return handler.executeAsync(action, ctx);
+            } else {
+                throw new ServiceException(getInvalidActionMessage(actionValidator, action));
+            }
+        } catch (Exception e) {
+            CompletableFuture<R> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Applies the rules of {@link #doExecute(Action, ExecutionContext)} to the failure of an asynchronous action.
+     */
+    private Throwable toDispatchException(Action<?> action, Throwable e) {
+        if (e instanceof ActionException) {
+            return e;
+        }
+
+        return newServiceException(action, e);
+    }
+
+    private ServiceException newServiceException(Action<?> action, Throwable e) {
+        String newMessage = "Service exception executing action \"" + action.getClass().getSimpleName() + "\", "
+                + e.toString();
+        ServiceException rethrown = new ServiceException(newMessage);
+        rethrown.initCause(e);
+        return rethrown;
+    }
+
+    private Throwable unwrap(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            return e.getCause();
         }
+        return e;
     }
 
     private <A extends Action<R>, R extends Result> void doUndo(A action, R result,
             ExecutionContext ctx) throws ActionException, ServiceException {
+        ActionHandlerValidatorInstance handlerValidator = findHandlerValidator(action);
+        ActionHandler<A, R> handler = getHandler(handlerValidator);
+        ActionValidator actionValidator = handlerValidator.getActionValidator();
 
-        ActionValidator actionValidator = findActionValidator(action);
-
-        ActionHandler<A, R> handler = findHandler(action);
         try {
             if (actionValidator.isValid(action)) {
                 handler.undo(action, result, ctx);
+                invalidateResults(action);
             } else {
-                throw new ServiceException(actionValidator.getClass().getName() + actionValidatorMessage + action
-                        .getClass().getName());
+                throw new ServiceException(getInvalidActionMessage(actionValidator, action));
             }
         } catch (ActionException e) {
             throw e;
@@ -181,27 +366,90 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         }
     }
 
-    private <A extends Action<R>, R extends Result> ActionValidator findActionValidator(A action) throws
-            UnsupportedActionException {
-        ActionHandlerValidatorInstance handlerValidator =
-                actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+    /**
+     * Returns the handler and validator of the action, resolving them from the registry the first time the action's
+     * class is dispatched and every time the registry is modified. Registries that don't track their modifications
+     * are queried on every call.
+     */
+    private <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findHandlerValidator(A action)
+            throws UnsupportedActionException {
+        // Read the counter before the lookup, a concurrent modification then invalidates the new resolution.
+        long modificationCount = actionHandlerValidatorRegistry.getModificationCount();
+        ActionHandlerValidatorInstance handlerValidator;
+
+        if (modificationCount < 0) {
+            handlerValidator = actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+        } else {
+            DispatchPlan plan = dispatchPlans.get(action.getClass());
+            ResolvedHandler resolvedHandler = plan.resolvedHandler;
+            if (resolvedHandler == null || resolvedHandler.modificationCount != modificationCount) {
+                resolvedHandler = new ResolvedHandler(modificationCount,
+                        actionHandlerValidatorRegistry.findActionHandlerValidator(action));
+                plan.resolvedHandler = resolvedHandler;
+            }
+            handlerValidator = resolvedHandler.handlerValidator;
+        }
+
         if (handlerValidator == null) {
             throw new UnsupportedActionException(action);
         }
+        return handlerValidator;
+    }
 
-        return handlerValidator.getActionValidator();
+    private boolean isCached(Action<?> action) {
+        return resultCache != null && dispatchPlans.get(action.getClass()).cached;
     }
 
-    @SuppressWarnings("unchecked")
-    private <A extends Action<R>, R extends Result> ActionHandler<A, R> findHandler(A action)
-            throws UnsupportedActionException {
-        ActionHandlerValidatorInstance handlerValidator =
-                actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+    private String getInvalidActionMessage(ActionValidator actionValidator, Action<?> action) {
+        return actionValidator.getClass().getName() + actionValidatorMessage + action.getClass().getName();
+    }
 
-        if (handlerValidator == null) {
-            throw new UnsupportedActionException(action);
+    /**
+     * @return The start time of the execution, or {@code 0} if executions are not measured.
+     */
+    private long startMetrics(Action<?> action) {
+        if (metrics == null) {
+            return 0;
+        }
+
+        metrics.started(action.getClass());
+        return System.nanoTime();
+    }
+
+    private void completeMetrics(Action<?> action, long start, Outcome outcome) {
+        if (metrics != null) {
+            metrics.completed(action.getClass(), System.nanoTime() - start, outcome);
+        }
+    }
+
+    /**
+     * Classifies a failure thrown by {@link #doExecute(Action, ExecutionContext)}, where unexpected exceptions are
+     * wrapped in a {@link ServiceException}.
+     */
+    private Outcome getOutcome(Throwable failure) {
+        if (failure instanceof ActionException) {
+            return Outcome.ACTION_EXCEPTION;
         }
 
+        Throwable cause = failure.getCause();
+        if (failure instanceof ServiceException && (cause == null || cause instanceof ServiceException)) {
+            return Outcome.SERVICE_EXCEPTION;
+        }
+        return Outcome.RUNTIME_EXCEPTION;
+    }
+
+    /**
+     * Evicts the cached results invalidated by an action that was executed or undone.
+     */
+    private void invalidateResults(Action<?> action) {
+        if (resultCache != null) {
+            resultCache.invalidate(action.getClass());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A extends Action<R>, R extends Result> ActionHandler<A, R> getHandler(
+            ActionHandlerValidatorInstance handlerValidator) {
         return (ActionHandler<A, R>) handlerValidator.getActionHandler();
     }
 }
@@ -16,12 +16,30 @@
 
 package com.gwtplatform.dispatch.rpc.server;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException;
+import com.google.gwt.user.client.rpc.RpcTokenException;
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.rpc.RPC;
+import com.google.gwt.user.server.rpc.RPCRequest;
+import com.google.gwt.user.server.rpc.RPCServletUtils;
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.gwtplatform.dispatch.rpc.shared.Action;
 import com.gwtplatform.dispatch.rpc.shared.DispatchService;
@@ -35,6 +53,18 @@ import com.gwtplatform.dispatch.shared.ActionException;
  * <p/>
  * This class is closely related to {@link AbstractDispatchImpl}, in theory the latter wouldn't be needed, but we use it
  * to workaround a GWT limitation described in {@link com.gwtplatform.dispatch.rpc.shared.DispatchAsync}.
+ * <p/>
+ * By default, calls are processed by {@link RemoteServiceServlet} and wait for their result. Subclasses can opt in to
+ * {@link #isAsyncExecutionEnabled() asynchronous execution}: actions handled by an
+ * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler AsyncActionHandler} are then completed
+ * through servlet asynchronous processing, so they don't hold a container thread while they wait. The servlet must
+ * also be declared with {@code async-supported}, otherwise requests are processed by {@link RemoteServiceServlet}.
+ * Asynchronous responses time out after {@link #getAsyncTimeoutMillis()} with a {@link ServiceException}.
+ * <p/>
+ * Failed actions are logged at most ten times per second for each kind of failure: {@link ActionException}s,
+ * {@link ServiceException}s and unexpected exceptions. The number of failures that weren't logged is reported with
+ * the next failure logged. Expected business failures are cheaper when they extend {@link ActionException} without
+ * capturing a stack trace.
  *
  * @see com.gwtplatform.dispatch.rpc.shared.DispatchAsync
  * @see Dispatch
@@ -51,9 +81,16 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
     private static final String xsrfAttackMessage = "Cookie provided by RPC doesn't match request cookie, " +
             "aborting action, possible XSRF attack. (Maybe you forgot to set " +
             "the security cookie?)";
+    private static final int MAX_LOGGED_FAILURES_PER_SECOND = 10;
+    private static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 60000;
+    private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
     protected final Dispatch dispatch;
     protected final Logger logger;
     protected final RequestProvider requestProvider;
+    private final FailureLogLimiter actionExceptionLogLimiter = createFailureLogLimiter();
+    private final FailureLogLimiter serviceExceptionLogLimiter = createFailureLogLimiter();
+    private final FailureLogLimiter unexpectedExceptionLogLimiter = createFailureLogLimiter();
+    private final boolean executeOverridden = isExecuteOverridden(getClass());
 
     protected AbstractDispatchServiceImpl(Logger logger,
                                           Dispatch dispatch,
@@ -75,40 +112,113 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
      */
     @Override
     public Result execute(String cookieSentByRPC, Action<?> action) throws ActionException, ServiceException {
-
-        if (action.isSecured() && !cookieMatch(cookieSentByRPC)) {
-            String message = xsrfAttackMessage + " While executing action: " + action.getClass().getName();
-
-            logger.severe(message);
-            throw new ServiceException(message);
-        }
+        checkSecurityCookie(cookieSentByRPC, action);
 
         try {
             return dispatch.execute(action);
-        } catch (ActionException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                String newMessage = "Action exception while executing " + action.getClass().getName() + ": " +
-                        e.getMessage();
-                logger.log(Level.WARNING, newMessage, e);
+        } catch (ActionException | ServiceException | RuntimeException e) {
+            Exception rethrown = toClientException(action, e);
+            if (rethrown instanceof ActionException) {
+                throw (ActionException) rethrown;
             }
+            throw (ServiceException) rethrown;
+        }
+    }
 
-            removeStacktraces(e);
-
-            throw e;
+    /**
+     * Same as {@link #execute(String, Action)}, without waiting for the result of an
+     * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler AsyncActionHandler}. The security
+     * cookie is verified before this method returns.
+     *
+     * @return The result, completed exceptionally with an {@link ActionException} or a {@link ServiceException}.
+     */
+    public CompletionStage<Result> executeAsync(String cookieSentByRPC, Action<?> action) {
+        CompletableFuture<Result> response = new CompletableFuture<>();
+        try {
+            checkSecurityCookie(cookieSentByRPC, action);
         } catch (ServiceException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                logger.log(Level.WARNING, "Service exception while executing " + action.getClass().getName() + ": " +
-                        e.getMessage(), e);
+            response.completeExceptionally(e);
+            return response;
+        }
+
+        dispatch.executeAsync(action).whenComplete((result, error) -> {
+            if (error == null) {
+                response.complete(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                response.completeExceptionally(toClientException(action, cause));
             }
+        });
+        return response;
+    }
 
-            throw new ServiceException(e.getMessage());
-        } catch (RuntimeException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                logger.log(Level.WARNING, "Unexpected exception while executing " + action.getClass().getName() + ": " +
-                        "" + e.getMessage(), e);
+    /**
+     * Enables the asynchronous execution of actions handled by an
+     * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler AsyncActionHandler}. Disabled by
+     * default.
+     * <p/>
+     * When enabled, POST requests that support asynchronous processing are handled by {@link
+     * #handlePost(HttpServletRequest, HttpServletResponse)} instead of {@link #doPost(HttpServletRequest,
+     * HttpServletResponse)}. {@link #onBeforeRequestDeserialized(String)}, {@link
+     * #onAfterRequestDeserialized(RPCRequest)} and {@link #processCall(RPCRequest)} are still called, but overrides of
+     * {@code doPost}, {@code processPost} and {@link #processCall(String)} are not. Calls to an overridden
+     * {@link #execute(String, Action)} are processed synchronously.
+     *
+     * @return {@code true} to execute actions asynchronously.
+     */
+    protected boolean isAsyncExecutionEnabled() {
+        return false;
+    }
+
+    /**
+     * @return The time after which an asynchronous response is completed with a {@link ServiceException} if its action
+     * is still executing. {@code 0} or less waits forever.
+     */
+    protected long getAsyncTimeoutMillis() {
+        return DEFAULT_ASYNC_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Processes GWT-RPC calls. If {@link #isAsyncExecutionEnabled() asynchronous execution} is enabled, POST requests
+     * that support asynchronous processing are handed to {@link #handlePost(HttpServletRequest, HttpServletResponse)}.
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if ("POST".equals(request.getMethod()) && request.isAsyncSupported() && isAsyncExecutionEnabled()) {
+            handlePost(request, response);
+        } else {
+            super.service(request, response);
+        }
+    }
+
+    /**
+     * Processes a GWT-RPC call the way {@link #doPost(HttpServletRequest, HttpServletResponse)} does, except for
+     * calls to {@link #execute(String, Action)}, which go through {@link #executeAsync(String, Action)} unless a
+     * subclass overrides {@code execute}. Other calls go through {@link #processCall(RPCRequest)}. If the result isn't
+     * available right away, the response is written asynchronously once the result is available, or once
+     * {@link #getAsyncTimeoutMillis()} elapse.
+     */
+    protected void handlePost(HttpServletRequest request, HttpServletResponse response) {
+        synchronized (this) {
+            if (perThreadRequest == null) {
+                perThreadRequest = new ThreadLocal<>();
+            }
+            if (perThreadResponse == null) {
+                perThreadResponse = new ThreadLocal<>();
             }
+        }
 
-            throw new ServiceException(e.getMessage());
+        perThreadRequest.set(request);
+        perThreadResponse.set(response);
+        try {
+            processRpcPost(request, response);
+        } catch (Throwable e) {
+            doUnexpectedFailure(e);
+        } finally {
+            perThreadRequest.set(null);
+            perThreadResponse.set(null);
         }
     }
 
@@ -140,6 +250,161 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
         }
     }
 
+    private void processRpcPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, SerializationException {
+        String requestPayload = readContent(request);
+        onBeforeRequestDeserialized(requestPayload);
+        checkPermutationStrongName();
+
+        RPCRequest rpcRequest;
+        try {
+            rpcRequest = decodeRequest(requestPayload);
+        } catch (IncompatibleRemoteServiceException | RpcTokenException e) {
+            logger.log(Level.WARNING, "Exception while decoding an RPC request", e);
+            writeResponse(request, response, RPC.encodeResponseForFailedRequest(null, e));
+            return;
+        }
+        onAfterRequestDeserialized(rpcRequest);
+
+        if (!"execute".equals(rpcRequest.getMethod().getName()) || executeOverridden) {
+            writeResponse(request, response, processCall(rpcRequest));
+            return;
+        }
+
+        Object[] parameters = rpcRequest.getParameters();
+        Action<?> action = (Action<?>) parameters[1];
+        CompletableFuture<Result> result = executeAsync((String) parameters[0], action).toCompletableFuture();
+
+        if (result.isDone() || !request.isAsyncSupported()) {
+            writeResponse(request, response, encodeExecuteResponse(rpcRequest, result));
+        } else {
+            AsyncContext asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(Math.max(getAsyncTimeoutMillis(), 0));
+            asyncContext.addListener(new AsyncListener() {
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    fail(asyncContext, result, action, "Timed out executing " + action.getClass().getName());
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    fail(asyncContext, result, action, "Error while executing " + action.getClass().getName());
+                }
+
+                @Override
+                public void onComplete(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            result.whenComplete((value, error) -> completeAsync(asyncContext, rpcRequest, result));
+        }
+    }
+
+    /**
+     * Decodes the payload of a GWT-RPC call.
+     */
+    RPCRequest decodeRequest(String requestPayload) {
+        return RPC.decodeRequest(requestPayload, getClass(), this);
+    }
+
+    /**
+     * Completes the response with a {@link ServiceException} unless the action completed first. Synchronized with
+     * {@link #completeAsync(AsyncContext, RPCRequest, CompletableFuture)} so the container never completes the response
+     * while the result is being written.
+     */
+    private void fail(AsyncContext asyncContext, CompletableFuture<Result> result, Action<?> action,
+            String message) {
+        synchronized (asyncContext) {
+            result.completeExceptionally(toClientException(action, new ServiceException(message, null, false, false)));
+        }
+    }
+
+    private void completeAsync(AsyncContext asyncContext, RPCRequest rpcRequest, CompletableFuture<Result> result) {
+        synchronized (asyncContext) {
+            HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+            HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+            try {
+                writeResponse(request, response, encodeExecuteResponse(rpcRequest, result));
+            } catch (Throwable e) {
+                logger.log(Level.SEVERE, "Exception while writing an asynchronous RPC response", e);
+                RPCServletUtils.writeResponseForUnexpectedFailure(getServletContext(), response, e);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+    }
+
+    private String encodeExecuteResponse(RPCRequest rpcRequest, CompletableFuture<Result> result)
+            throws SerializationException {
+        try {
+            return RPC.encodeResponseForSuccess(rpcRequest.getMethod(), result.join(),
+                    rpcRequest.getSerializationPolicy(), rpcRequest.getFlags());
+        } catch (CompletionException e) {
+            return RPC.encodeResponseForFailure(rpcRequest.getMethod(), e.getCause(),
+                    rpcRequest.getSerializationPolicy(), rpcRequest.getFlags());
+        }
+    }
+
+    private void writeResponse(HttpServletRequest request, HttpServletResponse response, String responsePayload)
+            throws IOException {
+        onAfterResponseSerialized(responsePayload);
+
+        boolean gzipEncode = RPCServletUtils.acceptsGzipEncoding(request)
+                && shouldCompressResponse(request, response, responsePayload);
+        RPCServletUtils.writeResponse(getServletContext(), response, responsePayload, gzipEncode);
+    }
+
+    private void checkSecurityCookie(String cookieSentByRPC, Action<?> action) throws ServiceException {
+        if (action.isSecured() && !cookieMatch(cookieSentByRPC)) {
+            String message = xsrfAttackMessage + " While executing action: " + action.getClass().getName();
+
+            logger.severe(message);
+            throw new ServiceException(message);
+        }
+    }
+
+    /**
+     * Logs an exception thrown while executing an action and converts it to the exception sent to the client.
+     *
+     * @return An {@link ActionException} or a {@link ServiceException}.
+     */
+    private Exception toClientException(Action<?> action, Throwable e) {
+        if (e instanceof ActionException) {
+            logFailure(actionExceptionLogLimiter, "Action exception while executing {0}: {1}", action, e);
+            removeStacktraces(e);
+
+            return (ActionException) e;
+        } else if (e instanceof ServiceException) {
+            logFailure(serviceExceptionLogLimiter, "Service exception while executing {0}: {1}", action, e);
+        } else {
+            logFailure(unexpectedExceptionLogLimiter, "Unexpected exception while executing {0}: {1}", action, e);
+        }
+
+        return new ServiceException(e.getMessage(), null, false, false);
+    }
+
+    private void logFailure(FailureLogLimiter limiter, String message, Action<?> action, Throwable e) {
+        if (!logger.isLoggable(Level.WARNING)) {
+            return;
+        }
+
+        long suppressed = limiter.acquire();
+        if (suppressed < 0) {
+            return;
+        }
+
+        LogRecord record = new LogRecord(Level.WARNING,
+                suppressed == 0 ? message : message + " ({2} similar failures were not logged)");
+        record.setLoggerName(logger.getName());
+        record.setParameters(new Object[]{action.getClass().getName(), e.getMessage(), suppressed});
+        record.setThrown(e);
+        logger.log(record);
+    }
+
     /**
      * Checks that the cookie in the RPC matches the one in the http request header.
      *
@@ -184,14 +449,24 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
     }
 
     /**
-     * Recursively removes all stacktraces from a Throwable and its cause.
+     * Removes all stacktraces from a Throwable and its causes.
      */
     private void removeStacktraces(Throwable e) {
-        if (e == null) {
-            return;
+        for (Throwable current = e; current != null; current = current.getCause()) {
+            current.setStackTrace(NO_STACK_TRACE);
         }
+    }
+
+    private static boolean isExecuteOverridden(Class<?> type) {
+        try {
+            Method execute = type.getMethod("execute", String.class, Action.class);
+            return execute.getDeclaringClass() != AbstractDispatchServiceImpl.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 
-        e.setStackTrace(new StackTraceElement[]{});
-        removeStacktraces(e.getCause());
+    private static FailureLogLimiter createFailureLogLimiter() {
+        return new FailureLogLimiter(MAX_LOGGED_FAILURES_PER_SECOND, TimeUnit.SECONDS.toNanos(1));
     }
 }
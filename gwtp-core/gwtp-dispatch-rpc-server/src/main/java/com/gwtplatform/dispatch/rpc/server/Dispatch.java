@@ -16,6 +16,9 @@
 
 package com.gwtplatform.dispatch.rpc.server;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 import com.gwtplatform.dispatch.rpc.shared.Action;
 import com.gwtplatform.dispatch.rpc.shared.Result;
 import com.gwtplatform.dispatch.rpc.shared.ServiceException;
@@ -43,6 +46,28 @@ public interface Dispatch {
      */
     <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException;
 
+    /**
+     * Executes the specified action without waiting for the result of an
+     * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler AsyncActionHandler}. Actions handled
+     * by a synchronous handler are executed before this method returns. The default implementation calls
+     * {@link #execute(Action)}.
+     *
+     * @param <A>    The {@link Action} type.
+     * @param <R>    The {@link Result} type.
+     * @param action The {@link Action}.
+     * @return The action's result, completed exceptionally with an {@link ActionException} if the action execution
+     * failed or with a {@link ServiceException} if the execution failed due to a service error.
+     */
+    default <A extends Action<R>, R extends Result> CompletionStage<R> executeAsync(A action) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        try {
+            result.complete(execute(action));
+        } catch (ActionException | ServiceException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
     /**
      * Undoes a previously executed action.
      *
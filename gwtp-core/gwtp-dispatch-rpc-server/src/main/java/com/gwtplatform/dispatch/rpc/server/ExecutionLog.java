@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionResult;
+
+/**
+ * Lock-free log of the actions executed or undone through an {@link ExecutionContext}. Entries can be appended from
+ * any number of threads. Each entry receives a sequence number in the order it completed, so the actions of a thread
+ * keep their relative order and all entries share a single global order.
+ * <p/>
+ * The log is a linked stack: appending swaps the head with a compare-and-set, and reading walks the stack from the
+ * head, from the most recent entry to the oldest.
+ */
+final class ExecutionLog {
+    /**
+     * A single logged action, linked to the entry appended before it.
+     */
+    static final class Entry {
+        private final ActionResult<?, ?> actionResult;
+        private final Entry previous;
+        private final long sequence;
+
+        private Entry(ActionResult<?, ?> actionResult, Entry previous) {
+            this.actionResult = actionResult;
+            this.previous = previous;
+            this.sequence = previous == null ? 0 : previous.sequence + 1;
+        }
+
+        ActionResult<?, ?> getActionResult() {
+            return actionResult;
+        }
+
+        /**
+         * @return The position of the entry in the order of completion, starting at 0.
+         */
+        long getSequence() {
+            return sequence;
+        }
+    }
+
+    private final AtomicReference<Entry> head = new AtomicReference<>();
+
+    /**
+     * Appends an action to the log.
+     *
+     * @return The sequence number of the new entry.
+     */
+    long append(ActionResult<?, ?> actionResult) {
+        while (true) {
+            Entry previous = head.get();
+            Entry entry = new Entry(actionResult, previous);
+            if (head.compareAndSet(previous, entry)) {
+                return entry.sequence;
+            }
+        }
+    }
+
+    /**
+     * @return The number of logged actions.
+     */
+    int size() {
+        Entry entry = head.get();
+        return entry == null ? 0 : (int) entry.sequence + 1;
+    }
+
+    /**
+     * Returns a snapshot of the log. Entries appended while or after the snapshot is taken are not included.
+     *
+     * @return The logged entries, from the most recent to the oldest.
+     */
+    List<Entry> newestFirst() {
+        List<Entry> entries = new ArrayList<>(size());
+        for (Entry entry = head.get(); entry != null; entry = entry.previous) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of failures logged per interval. The first {@code maxPerInterval} failures of an interval are
+ * logged, the following ones are only counted and the count is reported with the next failure logged.
+ */
+public final class FailureLogLimiter {
+    private final int maxPerInterval;
+    private final long intervalNanos;
+    private final AtomicLong intervalStart;
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * @param maxPerInterval The number of failures logged per interval.
+     * @param intervalNanos  The duration of an interval, in nanoseconds.
+     */
+    public FailureLogLimiter(int maxPerInterval, long intervalNanos) {
+        this.maxPerInterval = maxPerInterval;
+        this.intervalNanos = intervalNanos;
+        this.intervalStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return The number of failures not logged since the last call that returned a positive or zero value, or
+     * {@code -1} if this failure must not be logged.
+     */
+    public long acquire() {
+        long now = System.nanoTime();
+        long start = intervalStart.get();
+        if (now - start >= intervalNanos && intervalStart.compareAndSet(start, now)) {
+            logged.set(0);
+        }
+
+        if (logged.incrementAndGet() > maxPerInterval) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandler;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * An {@link ActionHandler} that doesn't block while the action is executed, for example a handler waiting for a remote
+ * service. When the dispatch servlet and the container support asynchronous processing, the servlet thread is released
+ * until the returned stage completes. Register it like any other handler.
+ * <p/>
+ * The result must not be completed with a checked exception other than {@link ActionException}. Sub-actions executed
+ * through the {@link ExecutionContext} must complete before the returned stage does, so they can be rolled back.
+ *
+ * @param <A> The type of {@link Action} supported by this handler.
+ * @param <R> The type of {@link Result} returned by this handler.
+ */
+public interface AsyncActionHandler<A extends Action<R>, R extends Result> extends ActionHandler<A, R> {
+    /**
+     * Starts handling the specified action.
+     *
+     * @param action  The action.
+     * @param context The {@link ExecutionContext}.
+     * @return A stage completed with the {@link Result}.
+     * @throws ActionException if the action can't be started.
+     */
+    CompletionStage<R> executeAsync(A action, ExecutionContext context) throws ActionException;
+
+    /**
+     * Executes the action with {@link #executeAsync(Action, ExecutionContext)} and waits for its result. This is used
+     * when the action is executed as a sub-action or when the servlet can't process the request asynchronously.
+     */
+    @Override
+    default R execute(A action, ExecutionContext context) throws ActionException {
+        try {
+            return executeAsync(action, context).toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ActionException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ActionException) {
+                throw (ActionException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ActionException(cause);
+        }
+    }
+}
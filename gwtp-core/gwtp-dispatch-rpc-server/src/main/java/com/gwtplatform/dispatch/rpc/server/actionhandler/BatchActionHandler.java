@@ -16,7 +16,19 @@
 
 package com.gwtplatform.dispatch.rpc.server.actionhandler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
 import com.gwtplatform.dispatch.rpc.shared.Action;
@@ -29,14 +41,84 @@ import com.gwtplatform.dispatch.shared.ActionException;
 /**
  * This handles {@link BatchAction} requests, which are a set of multiple actions that need to all be executed
  * successfully in sequence for the whole action to succeed.
+ * <p/>
+ * The actions of a {@link BatchAction#isParallel() parallel} batch are executed concurrently by at most
+ * {@code maxParallelism} workers: the request thread and workers submitted to an {@link Executor}. Since the flag is
+ * set by the client, the server bounds the work a single batch can start, and a {@code maxParallelism} of {@code 1}
+ * disables parallel execution altogether. Unless an executor is given to the constructor, a shared executor is used.
+ * It runs each worker on a virtual thread when the JVM supports them, and on a bounded pool of daemon threads
+ * otherwise. When the executor rejects a worker, the remaining actions are executed by the workers already running.
+ * <p/>
+ * Since most actions do not run on the request thread, their handlers must not rely on request-scoped objects. With
+ * {@link OnException#ROLLBACK}, actions that have not started when an action fails are skipped, and those that
+ * completed are rolled back with the rest of the request once the first failure is rethrown.
  */
 public class BatchActionHandler extends AbstractActionHandler<BatchAction, BatchResult> {
+    private static class DefaultExecutorHolder {
+        private static final Executor EXECUTOR = createDefaultExecutor();
+
+        private static Executor createDefaultExecutor() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return new ThreadPoolExecutor(0, MAX_POOL_SIZE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                        new DaemonThreadFactory());
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "gwtp-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * The default maximum number of actions of a single batch executed concurrently.
+     */
+    public static final int DEFAULT_MAX_PARALLELISM = 8;
+
+    private static final int MAX_POOL_SIZE = 64;
+
+    private final Executor executor;
+    private final int maxParallelism;
+
     public BatchActionHandler() {
+        this(null);
+    }
+
+    /**
+     * @param executor The executor running the actions of parallel batches, or {@code null} to use the shared default
+     *                 executor.
+     */
+    public BatchActionHandler(Executor executor) {
+        this(executor, DEFAULT_MAX_PARALLELISM);
+    }
+
+    /**
+     * @param executor       The executor running the actions of parallel batches, or {@code null} to use the shared
+     *                       default executor.
+     * @param maxParallelism The maximum number of actions of a single batch executed concurrently, including the one
+     *                       executed by the request thread. {@code 1} executes all batches sequentially.
+     */
+    public BatchActionHandler(Executor executor, int maxParallelism) {
         super(BatchAction.class);
+
+        this.executor = executor;
+        this.maxParallelism = maxParallelism;
     }
 
     public BatchResult execute(BatchAction action, ExecutionContext context)
             throws ActionException {
+        if (action.isParallel() && action.getActions().length > 1 && maxParallelism > 1) {
+            return executeInParallel(action, context);
+        }
+
         OnException onException = action.getOnException();
         List<Result> results = new java.util.ArrayList<>();
         for (Action<?> a : action.getActions()) {
@@ -45,14 +127,7 @@ public class BatchActionHandler extends AbstractActionHandler<BatchAction, Batch
                 result = context.execute(a);
             } catch (Exception e) {
                 if (onException == OnException.ROLLBACK) {
-                    if (e instanceof ActionException) {
-                        throw (ActionException) e;
-                    }
-                    if (e instanceof RuntimeException) {
-                        throw (RuntimeException) e;
-                    } else {
-                        throw new ActionException(e);
-                    }
+                    rethrow(e);
                 }
             }
             results.add(result);
@@ -65,4 +140,76 @@ public class BatchActionHandler extends AbstractActionHandler<BatchAction, Batch
                      ExecutionContext context) throws ActionException {
         // No action necessary - the sub actions should automatically rollback
     }
+
+    private BatchResult executeInParallel(BatchAction action, final ExecutionContext context)
+            throws ActionException {
+        final Action<?>[] actions = action.getActions();
+        final boolean rollback = action.getOnException() == OnException.ROLLBACK;
+        final Result[] results = new Result[actions.length];
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(actions.length);
+        final AtomicInteger next = new AtomicInteger();
+        Executor target = executor == null ? DefaultExecutorHolder.EXECUTOR : executor;
+
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < actions.length) {
+                try {
+                    if (!rollback || failure.get() == null) {
+                        results[index] = context.execute(actions[index]);
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        // The request thread is a worker too, so the batch completes even if the executor never runs the others.
+        int workers = Math.min(maxParallelism, actions.length);
+        for (int i = 1; i < workers; ++i) {
+            try {
+                target.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+
+        // Every started action must be logged in the context before returning, so it can be rolled back.
+        awaitUninterruptibly(done);
+
+        if (rollback && failure.get() != null) {
+            rethrow(failure.get());
+        }
+        return new BatchResult(new ArrayList<>(Arrays.asList(results)));
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrow(Exception e) throws ActionException {
+        if (e instanceof ActionException) {
+            throw (ActionException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else {
+            throw new ActionException(e);
+        }
+    }
 }
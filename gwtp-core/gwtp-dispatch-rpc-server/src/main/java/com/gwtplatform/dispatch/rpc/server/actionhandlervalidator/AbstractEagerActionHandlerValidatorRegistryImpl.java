@@ -18,6 +18,7 @@ package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
 import com.gwtplatform.dispatch.rpc.shared.Action;
@@ -27,12 +28,17 @@ import com.gwtplatform.dispatch.rpc.shared.Result;
  * This is a eager-loading implementation of the registry. It will create action handlers and validators at startup. All
  * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler ActionHandler} and {@link ActionValidator}
  * implementations <b>must</b> have a public, default constructor.
+ * <p/>
+ * An action without a handler registered for its exact class is handled by the handler registered for its closest
+ * superclass or interface, if any.
  */
 public abstract class AbstractEagerActionHandlerValidatorRegistryImpl implements EagerActionHandlerValidatorRegistry {
 
     private final Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>
             actionHandlerValidatorInstances;
     private final Map<Class<? extends ActionValidator>, ActionValidator> validators;
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final ActionClassResolver actionClassResolver = new ActionClassResolver();
 
     protected AbstractEagerActionHandlerValidatorRegistryImpl() {
         actionHandlerValidatorInstances = new HashMap<>();
@@ -45,17 +51,22 @@ public abstract class AbstractEagerActionHandlerValidatorRegistryImpl implements
         actionHandlerValidatorInstances.put(actionClass, actionHandlerValidatorInstance);
         validators.put(actionHandlerValidatorInstance.getActionValidator().getClass(),
                 actionHandlerValidatorInstance.getActionValidator());
+        modificationCount.incrementAndGet();
     }
 
     @Override
     public void clearActionHandlerValidators() {
         actionHandlerValidatorInstances.clear();
         validators.clear();
+        modificationCount.incrementAndGet();
     }
 
     @Override
     public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(A action) {
-        return actionHandlerValidatorInstances.get(action.getClass());
+        Class<?> actionClass = actionClassResolver.resolve(action.getClass(), modificationCount.get(),
+                actionHandlerValidatorInstances::containsKey);
+
+        return actionClass == null ? null : actionHandlerValidatorInstances.get(actionClass);
     }
 
     @Override
@@ -63,11 +74,17 @@ public abstract class AbstractEagerActionHandlerValidatorRegistryImpl implements
         return validators.get(actionValidatorClass);
     }
 
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
     @Override
     public <A extends Action<R>, R extends Result> boolean removeActionHandlerValidator(Class<A> actionClass) {
         ActionHandlerValidatorInstance instance = actionHandlerValidatorInstances.remove(actionClass);
 
         if (instance != null) {
+            modificationCount.incrementAndGet();
             if (!containValidator(instance.getActionValidator())) {
                 return validators.remove(instance.getActionValidator().getClass()) != null;
             }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+
+/**
+ * This is a lazy-loading implementation of the registry. It will only create action handlers and validators when they
+ * are first used, or when they are {@link #warmUp(Iterable) warmed up}.
+ * <p/>
+ * The handler and validator of an action class are created at most once, even when many threads look them up
+ * concurrently: the first thread creates them while the others wait for it. Validators are shared between the
+ * actions that use the same validator class and are counted, so a validator is dropped when the last action using it
+ * is removed.
+ * <p/>
+ * An action without a handler registered for its exact class is handled by the handler registered for its closest
+ * superclass or interface, if any.
+ * <p/>
+ * Registering an action class that is already registered replaces its registration, unless
+ * {@link #keepsFirstRegistration()} is overridden.
+ */
+public abstract class AbstractLazyActionHandlerValidatorRegistryImpl implements LazyActionHandlerValidatorRegistry {
+    /**
+     * The instances of a registered action class, created on first use.
+     */
+    private final class InstanceHolder {
+        private final ActionHandlerValidatorClass<?, ?> actionHandlerValidatorClass;
+        private volatile ActionHandlerValidatorInstance instance;
+        private boolean discarded;
+
+        private InstanceHolder(ActionHandlerValidatorClass<?, ?> actionHandlerValidatorClass) {
+            this.actionHandlerValidatorClass = actionHandlerValidatorClass;
+        }
+
+        private ActionHandlerValidatorInstance get() {
+            ActionHandlerValidatorInstance result = instance;
+            if (result != null) {
+                return result;
+            }
+
+            synchronized (this) {
+                if (instance == null && !discarded) {
+                    instance = createInstance(actionHandlerValidatorClass);
+                }
+                return instance;
+            }
+        }
+
+        /**
+         * Releases the validator of this holder. The holder won't create its instances afterwards.
+         */
+        private synchronized void discard() {
+            discarded = true;
+            if (instance != null) {
+                releaseValidator(actionHandlerValidatorClass.getActionValidatorClass());
+            }
+        }
+    }
+
+    /**
+     * A validator and the number of created instances using it.
+     */
+    private static final class ValidatorReference {
+        private final ActionValidator validator;
+        private int count;
+
+        private ValidatorReference(ActionValidator validator) {
+            this.validator = validator;
+        }
+    }
+
+    private final ConcurrentMap<Class<? extends Action<?>>, ActionHandlerValidatorClass<?, ?>>
+            actionHandlerValidatorClasses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Action<?>>, InstanceHolder> actionHandlerValidatorInstances =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends ActionValidator>, ValidatorReference> validators =
+            new ConcurrentHashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final ActionClassResolver actionClassResolver = new ActionClassResolver();
+
+    @Override
+    public <A extends Action<R>, R extends Result> void addActionHandlerValidatorClass(Class<A> actionClass,
+            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
+        if (keepsFirstRegistration()) {
+            if (actionHandlerValidatorClasses.putIfAbsent(actionClass, actionHandlerValidatorClass) == null) {
+                modificationCount.incrementAndGet();
+            }
+            return;
+        }
+
+        ActionHandlerValidatorClass<?, ?> previous =
+                actionHandlerValidatorClasses.put(actionClass, actionHandlerValidatorClass);
+
+        if (previous != actionHandlerValidatorClass) {
+            if (previous != null) {
+                discardInstances(actionClass);
+            }
+            modificationCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> void removeActionHandlerValidatorClass(Class<A> actionClass,
+            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
+        if (actionHandlerValidatorClasses.remove(actionClass, actionHandlerValidatorClass)) {
+            discardInstances(actionClass);
+            modificationCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clearActionHandlerValidators() {
+        actionHandlerValidatorInstances.clear();
+        validators.clear();
+        modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(
+            A action) {
+        return findActionHandlerValidator(action.getClass());
+    }
+
+    @Override
+    public ActionValidator findActionValidator(Class<? extends ActionValidator> actionValidatorClass) {
+        ValidatorReference reference = validators.get(actionValidatorClass);
+        return reference == null ? null : reference.validator;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    @Override
+    public int warmUp(Iterable<? extends Class<? extends Action<?>>> actionClasses) {
+        int count = 0;
+        for (Class<? extends Action<?>> actionClass : actionClasses) {
+            if (findActionHandlerValidator(actionClass) != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true} to ignore the registrations of an action class that is already registered, {@code false}
+     * to replace the previous registration and discard its instances. {@code false} by default.
+     */
+    protected boolean keepsFirstRegistration() {
+        return false;
+    }
+
+    /**
+     * Obtains an instance of an action handler or action validator.
+     *
+     * @param type The class of the handler or validator.
+     * @param <B>  The type of the handler or validator.
+     * @return The instance, or {@code null} if it can't be created.
+     */
+    protected abstract <B> B getInstance(Class<B> type);
+
+    @SuppressWarnings("unchecked")
+    private ActionHandlerValidatorInstance findActionHandlerValidator(Class<?> actionClass) {
+        Class<?> registeredClass = actionClassResolver.resolve(actionClass, modificationCount.get(),
+                actionHandlerValidatorClasses::containsKey);
+        if (registeredClass == null) {
+            return null;
+        }
+
+        InstanceHolder holder = actionHandlerValidatorInstances.get(registeredClass);
+
+        if (holder == null) {
+            ActionHandlerValidatorClass<?, ?> actionHandlerValidatorClass =
+                    actionHandlerValidatorClasses.get(registeredClass);
+            if (actionHandlerValidatorClass == null) {
+                return null;
+            }
+
+            holder = actionHandlerValidatorInstances.computeIfAbsent((Class<? extends Action<?>>) registeredClass,
+                    key -> new InstanceHolder(actionHandlerValidatorClass));
+        }
+
+        return holder.get();
+    }
+
+    private void discardInstances(Class<?> actionClass) {
+        InstanceHolder holder = actionHandlerValidatorInstances.remove(actionClass);
+        if (holder != null) {
+            holder.discard();
+        }
+    }
+
+    private ActionHandlerValidatorInstance createInstance(
+            ActionHandlerValidatorClass<?, ?> actionHandlerValidatorClass) {
+        ActionHandler<?, ?> actionHandler = getInstance(actionHandlerValidatorClass.getActionHandlerClass());
+        if (actionHandler == null) {
+            return null;
+        }
+
+        ActionValidator actionValidator = acquireValidator(actionHandlerValidatorClass.getActionValidatorClass());
+        if (actionValidator == null) {
+            return null;
+        }
+
+        return new ActionHandlerValidatorInstance(actionValidator, actionHandler);
+    }
+
+    private ActionValidator acquireValidator(Class<? extends ActionValidator> actionValidatorClass) {
+        while (true) {
+            ValidatorReference reference = validators.get(actionValidatorClass);
+            if (reference == null) {
+                // The validator is created outside of the map so its creation can use the registry. If another thread
+                // registers the same validator class meanwhile, its instance is used and this one is dropped.
+                ActionValidator validator = getInstance(actionValidatorClass);
+                if (validator == null) {
+                    return null;
+                }
+
+                ValidatorReference created = new ValidatorReference(validator);
+                ValidatorReference existing = validators.putIfAbsent(actionValidatorClass, created);
+                reference = existing == null ? created : existing;
+            }
+
+            ValidatorReference expected = reference;
+            ValidatorReference acquired = validators.computeIfPresent(actionValidatorClass, (key, current) -> {
+                if (current == expected) {
+                    ++current.count;
+                }
+                return current;
+            });
+            if (acquired == expected) {
+                return expected.validator;
+            }
+            // The validator was dropped while it was acquired, try again.
+        }
+    }
+
+    private void releaseValidator(Class<? extends ActionValidator> actionValidatorClass) {
+        validators.computeIfPresent(actionValidatorClass,
+                (key, current) -> --current.count == 0 ? null : current);
+    }
+}
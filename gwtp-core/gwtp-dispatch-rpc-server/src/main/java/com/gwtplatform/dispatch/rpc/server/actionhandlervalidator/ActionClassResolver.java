@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import com.gwtplatform.dispatch.rpc.shared.Action;
+
+/**
+ * Finds the registered class that handles an action class. The candidates are searched in this order: the action
+ * class itself, its superclasses, the interfaces they implement (closest first) and finally {@link Action}.
+ * <p/>
+ * Resolutions going through the hierarchy are memoised per action class until the modification counter of the
+ * registry changes, so only the first lookup of an action class pays for the search.
+ */
+final class ActionClassResolver {
+    private static final class Resolution {
+        private final long modificationCount;
+        private final Class<?> registeredClass;
+
+        private Resolution(long modificationCount, Class<?> registeredClass) {
+            this.modificationCount = modificationCount;
+            this.registeredClass = registeredClass;
+        }
+    }
+
+    private static final ClassValue<List<Class<?>>> CANDIDATES = new ClassValue<List<Class<?>>>() {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> type) {
+            return Collections.unmodifiableList(listCandidates(type));
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * @param actionClass       The concrete class of the action.
+     * @param modificationCount The modification counter of the registry, read <b>before</b> any lookup.
+     * @param registered        Tells whether a class is registered.
+     * @return The first registered candidate, or {@code null} if none is registered.
+     */
+    Class<?> resolve(Class<?> actionClass, long modificationCount, Predicate<Class<?>> registered) {
+        if (registered.test(actionClass)) {
+            return actionClass;
+        }
+
+        Resolution resolution = resolutions.get(actionClass);
+        if (resolution == null || resolution.modificationCount != modificationCount) {
+            resolution = new Resolution(modificationCount, findRegisteredClass(actionClass, registered));
+            resolutions.put(actionClass, resolution);
+        }
+        return resolution.registeredClass;
+    }
+
+    /**
+     * @return The classes searched for the handler of {@code actionClass}, in search order.
+     */
+    static List<Class<?>> getCandidates(Class<?> actionClass) {
+        return CANDIDATES.get(actionClass);
+    }
+
+    private static Class<?> findRegisteredClass(Class<?> actionClass, Predicate<Class<?>> registered) {
+        for (Class<?> candidate : getCandidates(actionClass)) {
+            if (registered.test(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static List<Class<?>> listCandidates(Class<?> actionClass) {
+        Set<Class<?>> candidates = new LinkedHashSet<>();
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+
+        for (Class<?> type = actionClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            candidates.add(type);
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+
+        while (!interfaces.isEmpty()) {
+            Class<?> type = interfaces.poll();
+            if (type != Action.class && candidates.add(type)) {
+                interfaces.addAll(Arrays.asList(type.getInterfaces()));
+            }
+        }
+
+        candidates.add(Action.class);
+        return new ArrayList<>(candidates);
+    }
+}
@@ -31,7 +31,8 @@ public interface ActionHandlerValidatorRegistry {
 
     /**
      * Searches the registry and returns the {@link ActionValidator} which supports the specified {@link Action},
-     * or <code>null</code> if none is available.
+     * or <code>null</code> if none is available. Implementations may fall back to the handler registered for a
+     * superclass or an interface of the action's class.
      *
      * @param <A>    Type of associated {@link Action}
      * @param <R>    Type of associated {@link Result}
@@ -47,4 +48,16 @@ public interface ActionHandlerValidatorRegistry {
      * @param actionValidatorClass The {@link Action}
      */
     ActionValidator findActionValidator(Class<? extends ActionValidator> actionValidatorClass);
+
+    /**
+     * Returns a counter incremented every time handlers or validators are added to, removed from or cleared from the
+     * registry. Callers may cache the result of {@link #findActionHandlerValidator(Action)} for an action class until
+     * the counter changes.
+     *
+     * @return The modification counter, or a negative value if the registry doesn't track its modifications, in which
+     * case its lookups must not be cached.
+     */
+    default long getModificationCount() {
+        return -1;
+    }
 }
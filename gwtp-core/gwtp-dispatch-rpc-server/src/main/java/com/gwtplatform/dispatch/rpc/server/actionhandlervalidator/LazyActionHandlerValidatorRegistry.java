@@ -42,4 +42,15 @@ public interface LazyActionHandlerValidatorRegistry extends ActionHandlerValidat
      */
     <A extends Action<R>, R extends Result> void removeActionHandlerValidatorClass(Class<A> actionClass,
             ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass);
+
+    /**
+     * Creates the handlers and validators of the specified actions ahead of their first use, so the first requests
+     * after startup don't all wait for their creation.
+     *
+     * @param actionClasses The {@link Action} classes to prepare.
+     * @return The number of actions whose handler and validator are available.
+     */
+    default int warmUp(Iterable<? extends Class<? extends Action<?>>> actionClasses) {
+        return 0;
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+
+/**
+ * The metrics of an action class. Latencies are recorded in a histogram whose buckets double in size, starting at one
+ * microsecond, so percentiles are accurate within a factor of two.
+ */
+public final class ActionMetrics {
+    private static final int BUCKETS = 40;
+
+    private final Class<?> actionClass;
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    ActionMetrics(Class<?> actionClass) {
+        this.actionClass = actionClass;
+        for (int i = 0; i < outcomes.length; ++i) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    public Class<?> getActionClass() {
+        return actionClass;
+    }
+
+    /**
+     * @return The number of completed executions.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder outcome : outcomes) {
+            count += outcome.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of executions completed with {@code outcome}.
+     */
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @return The number of executions that didn't complete successfully.
+     */
+    public long getErrorCount() {
+        return getCount() - getCount(Outcome.SUCCESS);
+    }
+
+    /**
+     * @return The number of executions in progress.
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @return The average number of completed executions per second since the first execution.
+     */
+    public double getThroughput() {
+        long elapsedNanos = Math.max(System.nanoTime() - createdNanos, 1);
+        return getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     * @return An upper bound of the latency of the given percentile of the executions, in nanoseconds.
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min(getUpperBoundNanos(i), getMaxNanos());
+            }
+        }
+        return 0;
+    }
+
+    void started() {
+        inFlight.increment();
+    }
+
+    void completed(long durationNanos, Outcome outcome) {
+        inFlight.decrement();
+        totalNanos.add(durationNanos);
+        maxNanos.accumulate(durationNanos);
+        histogram.incrementAndGet(getBucket(durationNanos));
+        outcomes[outcome.ordinal()].increment();
+    }
+
+    private static int getBucket(long durationNanos) {
+        long micros = durationNanos / 1000;
+        int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long getUpperBoundNanos(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+    }
+}
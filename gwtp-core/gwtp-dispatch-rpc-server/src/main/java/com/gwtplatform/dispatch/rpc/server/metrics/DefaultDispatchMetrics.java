@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import com.gwtplatform.dispatch.rpc.server.FailureLogLimiter;
+
+/**
+ * Keeps the metrics of the executed actions in memory and logs the executions slower than a threshold, one second by
+ * default. At most ten slow executions are logged per minute, the others are only counted.
+ */
+public class DefaultDispatchMetrics implements DispatchMetrics {
+    private static final Logger LOGGER = Logger.getLogger(DefaultDispatchMetrics.class.getName());
+    private static final int MAX_LOGGED_SLOW_ACTIONS_PER_MINUTE = 10;
+
+    private final long slowActionThresholdNanos;
+    private final ConcurrentMap<Class<?>, ActionMetrics> actionMetrics = new ConcurrentHashMap<>();
+    private final FailureLogLimiter slowActionLogLimiter =
+            new FailureLogLimiter(MAX_LOGGED_SLOW_ACTIONS_PER_MINUTE, TimeUnit.MINUTES.toNanos(1));
+
+    public DefaultDispatchMetrics() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param slowActionThreshold The duration from which an execution is logged as slow.
+     * @param unit                The unit of {@code slowActionThreshold}.
+     */
+    public DefaultDispatchMetrics(long slowActionThreshold, TimeUnit unit) {
+        this.slowActionThresholdNanos = unit.toNanos(slowActionThreshold);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void started(Class<?> actionClass) {
+        getOrCreateActionMetrics(actionClass).started();
+    }
+
+    @Override
+    public void completed(Class<?> actionClass, long durationNanos, Outcome outcome) {
+        getOrCreateActionMetrics(actionClass).completed(durationNanos, outcome);
+
+        if (durationNanos >= slowActionThresholdNanos) {
+            logSlowAction(actionClass, durationNanos, outcome);
+        }
+    }
+
+    @Override
+    public Map<Class<?>, ActionMetrics> getActionMetrics() {
+        return Collections.unmodifiableMap(actionMetrics);
+    }
+
+    /**
+     * @return The metrics of an action class, or {@code null} if no action of that class was executed.
+     */
+    public ActionMetrics getActionMetrics(Class<?> actionClass) {
+        return actionMetrics.get(actionClass);
+    }
+
+    /**
+     * Logs an execution slower than the threshold. Override to report it differently.
+     */
+    protected void logSlowAction(Class<?> actionClass, long durationNanos, Outcome outcome) {
+        if (!LOGGER.isLoggable(Level.WARNING)) {
+            return;
+        }
+
+        long suppressed = slowActionLogLimiter.acquire();
+        if (suppressed < 0) {
+            return;
+        }
+
+        String message = "Slow action {0} took {1} ms ({2})";
+        LogRecord record = new LogRecord(Level.WARNING,
+                suppressed == 0 ? message : message + " ({3} similar executions were not logged)");
+        record.setLoggerName(LOGGER.getName());
+        record.setParameters(new Object[]{actionClass.getName(), TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                outcome, suppressed});
+        LOGGER.log(record);
+    }
+
+    private ActionMetrics getOrCreateActionMetrics(Class<?> actionClass) {
+        ActionMetrics metrics = actionMetrics.get(actionClass);
+        if (metrics == null) {
+            metrics = actionMetrics.computeIfAbsent(actionClass, ActionMetrics::new);
+        }
+        return metrics;
+    }
+}
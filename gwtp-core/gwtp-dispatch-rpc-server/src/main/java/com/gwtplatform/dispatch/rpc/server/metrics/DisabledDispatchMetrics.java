@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Disables the metrics. The dispatcher then doesn't measure executions at all.
+ */
+public final class DisabledDispatchMetrics implements DispatchMetrics {
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void started(Class<?> actionClass) {
+    }
+
+    @Override
+    public void completed(Class<?> actionClass, long durationNanos, Outcome outcome) {
+    }
+
+    @Override
+    public Map<Class<?>, ActionMetrics> getActionMetrics() {
+        return Collections.emptyMap();
+    }
+}
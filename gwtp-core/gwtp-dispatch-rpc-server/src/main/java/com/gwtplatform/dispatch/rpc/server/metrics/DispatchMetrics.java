@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.util.Map;
+
+/**
+ * Registry of the metrics of the actions executed by {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl
+ * AbstractDispatchImpl}. Every execution of an action, including the sub-actions executed through an
+ * {@link com.gwtplatform.dispatch.rpc.server.ExecutionContext ExecutionContext}, is reported to the registry.
+ */
+public interface DispatchMetrics {
+    /**
+     * The outcome of an execution.
+     */
+    enum Outcome {
+        SUCCESS,
+        ACTION_EXCEPTION,
+        SERVICE_EXCEPTION,
+        /**
+         * The handler threw an unexpected exception. It is sent to the client as a {@code ServiceException}.
+         */
+        RUNTIME_EXCEPTION
+    }
+
+    /**
+     * @return {@code false} if metrics are disabled, in which case the dispatcher doesn't call the other methods.
+     */
+    boolean isEnabled();
+
+    /**
+     * Called when the execution of an action starts.
+     */
+    void started(Class<?> actionClass);
+
+    /**
+     * Called when the execution of an action completes.
+     *
+     * @param actionClass   The class of the action.
+     * @param durationNanos The duration of the execution, in nanoseconds.
+     * @param outcome       The outcome of the execution.
+     */
+    void completed(Class<?> actionClass, long durationNanos, Outcome outcome);
+
+    /**
+     * @return The metrics of each action class executed so far.
+     */
+    Map<Class<?>, ActionMetrics> getActionMetrics();
+}
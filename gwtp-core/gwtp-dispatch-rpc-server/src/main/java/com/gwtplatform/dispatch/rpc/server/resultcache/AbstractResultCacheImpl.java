@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.resultcache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import com.gwtplatform.dispatch.rpc.server.RequestProvider;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.CachedResult;
+import com.gwtplatform.dispatch.rpc.shared.HasCacheKey;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * This is an in-memory implementation of the {@link ResultCache}. Each cached action class has its own
+ * least-recently-used map, sized and expired according to its {@link CachedResult} annotation.
+ * <p/>
+ * A result loaded while the results of its action class are invalidated is not cached, so a write that completes
+ * during a read can't leave a stale result in the cache.
+ */
+public abstract class AbstractResultCacheImpl implements ResultCache {
+    /**
+     * The cached results of an action class.
+     */
+    private static final class Region {
+        private final long timeToLiveNanos;
+        private final boolean perUser;
+        private final Map<Object, Entry> entries;
+        private long generation;
+
+        private Region(long timeToLiveNanos, boolean perUser, int maxEntries) {
+            this.timeToLiveNanos = timeToLiveNanos;
+            this.perUser = perUser;
+            this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        private synchronized Result get(Object key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.result;
+        }
+
+        private synchronized long getGeneration() {
+            return generation;
+        }
+
+        private synchronized void put(Object key, Result result, long loadGeneration, long now) {
+            if (generation == loadGeneration) {
+                entries.put(key, new Entry(result, now + timeToLiveNanos));
+            }
+        }
+
+        private synchronized void clear() {
+            ++generation;
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+        private final Result result;
+        private final long expiresAt;
+
+        private Entry(Result result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The key of a result cached for a single user.
+     */
+    private static final class UserKey {
+        private final String user;
+        private final Object key;
+
+        private UserKey(String user, Object key) {
+            this.user = user;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof UserKey)) {
+                return false;
+            }
+            UserKey other = (UserKey) obj;
+            return user.equals(other.user) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * user.hashCode() + key.hashCode();
+        }
+    }
+
+    private static final Region NOT_CACHED = new Region(0, false, 0);
+
+    private final RequestProvider requestProvider;
+    private final ConcurrentMap<Class<?>, Region> regions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, List<Region>> invalidations = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    protected AbstractResultCacheImpl(RequestProvider requestProvider) {
+        this.requestProvider = requestProvider;
+    }
+
+    @Override
+    public boolean isCached(Class<?> actionClass) {
+        return getRegion(actionClass) != NOT_CACHED;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Action<R>, R extends Result> R get(A action, Loader<R> loader) throws ActionException {
+        Region region = getRegion(action.getClass());
+        Object key = region == NOT_CACHED ? null : getKey(region, action);
+        if (key == null) {
+            missCount.incrementAndGet();
+            return loader.load();
+        }
+
+        R result = (R) region.get(key, System.nanoTime());
+        if (result != null) {
+            hitCount.incrementAndGet();
+            return result;
+        }
+
+        missCount.incrementAndGet();
+        long generation = region.getGeneration();
+        result = loader.load();
+        if (result != null) {
+            region.put(key, result, generation, System.nanoTime());
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidate(Class<?> actionClass) {
+        List<Region> invalidated = invalidations.get(actionClass);
+        if (invalidated != null) {
+            for (Region region : invalidated) {
+                region.clear();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Region region : regions.values()) {
+            region.clear();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Identifies the user of the current request. By default, the remote user of the request or else the id of its
+     * session. Overrides must return {@code null} rather than fail when called outside of a request.
+     *
+     * @return The user, or {@code null} if unknown, in which case per-user results are not cached.
+     */
+    protected String getUser() {
+        HttpServletRequest request = requestProvider == null ? null : requestProvider.getServletRequest();
+        if (request == null) {
+            return null;
+        }
+
+        String user = request.getRemoteUser();
+        if (user != null) {
+            return user;
+        }
+
+        HttpSession session = request.getSession(false);
+        return session == null ? null : session.getId();
+    }
+
+    private Region getRegion(Class<?> actionClass) {
+        Region region = regions.get(actionClass);
+        if (region == null) {
+            region = regions.computeIfAbsent(actionClass, this::createRegion);
+        }
+        return region;
+    }
+
+    private Region createRegion(Class<?> actionClass) {
+        CachedResult cachedResult = actionClass.getAnnotation(CachedResult.class);
+        if (cachedResult == null) {
+            return NOT_CACHED;
+        }
+
+        Region region = new Region(TimeUnit.SECONDS.toNanos(cachedResult.timeToLiveSeconds()),
+                cachedResult.scope() == CachedResult.Scope.USER, cachedResult.maxEntries());
+        for (Class<? extends Action<?>> invalidatingClass : cachedResult.invalidatedBy()) {
+            invalidations.computeIfAbsent(invalidatingClass, key -> new CopyOnWriteArrayList<>()).add(region);
+        }
+        return region;
+    }
+
+    private Object getKey(Region region, Action<?> action) {
+        Object key = action instanceof HasCacheKey ? ((HasCacheKey) action).getCacheKey() : action;
+        if (key == null || !region.perUser) {
+            return key;
+        }
+
+        String user = getUser();
+        return user == null ? null : new UserKey(user, key);
+    }
+}
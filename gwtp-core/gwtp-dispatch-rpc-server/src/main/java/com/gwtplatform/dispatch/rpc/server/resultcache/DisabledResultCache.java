@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.resultcache;
+
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Disables the result cache. The dispatcher then neither looks up nor invalidates results.
+ */
+public final class DisabledResultCache implements ResultCache {
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isCached(Class<?> actionClass) {
+        return false;
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> R get(A action, Loader<R> loader) throws ActionException {
+        return loader.load();
+    }
+
+    @Override
+    public void invalidate(Class<?> actionClass) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public long getHitCount() {
+        return 0;
+    }
+
+    @Override
+    public long getMissCount() {
+        return 0;
+    }
+}
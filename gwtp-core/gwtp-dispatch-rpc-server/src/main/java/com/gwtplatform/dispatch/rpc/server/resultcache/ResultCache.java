@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.resultcache;
+
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Server-side cache of the results of actions annotated with {@link com.gwtplatform.dispatch.rpc.shared.CachedResult
+ * CachedResult}. It is used by {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl AbstractDispatchImpl}
+ * once an action was accepted by its validator.
+ */
+public interface ResultCache {
+    /**
+     * Computes the result of an action on a cache miss.
+     *
+     * @param <R> The type of the result.
+     */
+    interface Loader<R extends Result> {
+        R load() throws ActionException;
+    }
+
+    /**
+     * @return {@code false} if the cache is disabled, in which case the dispatcher doesn't call the other methods.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the results of the action class are cached.
+     */
+    boolean isCached(Class<?> actionClass);
+
+    /**
+     * Returns the cached result of an action, or loads and caches it.
+     *
+     * @param action The action, its class must be {@link #isCached(Class) cached}.
+     * @param loader Computes the result on a cache miss.
+     * @return The result.
+     * @throws ActionException If the loader fails.
+     */
+    <A extends Action<R>, R extends Result> R get(A action, Loader<R> loader) throws ActionException;
+
+    /**
+     * Evicts the results of the actions {@link com.gwtplatform.dispatch.rpc.shared.CachedResult#invalidatedBy()
+     * invalidated by} an action class. Called every time an action that isn't cached is executed or undone.
+     */
+    void invalidate(Class<?> actionClass);
+
+    /**
+     * Evicts all results.
+     */
+    void clear();
+
+    /**
+     * @return The number of results found in the cache.
+     */
+    long getHitCount();
+
+    /**
+     * @return The number of results loaded because they weren't found in the cache.
+     */
+    long getMissCount();
+}
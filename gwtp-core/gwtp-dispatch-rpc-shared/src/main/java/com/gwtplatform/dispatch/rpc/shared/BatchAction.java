@@ -19,6 +19,10 @@ package com.gwtplatform.dispatch.rpc.shared;
 /**
  * This provides a simple way to send multiple actions to be executed in sequence. If any fail, the rules for the
  * {@link OnException} value provided in the constructor determine the outcome.
+ * <p/>
+ * Batches of independent actions, such as a set of reads, can be flagged as {@link #isParallel() parallel}. The
+ * actions of a parallel batch are executed concurrently on the server, the order of the {@link BatchResult} still
+ * matches the order of the actions.
  */
 public abstract class BatchAction implements Action<BatchResult> {
     /**
@@ -41,6 +45,8 @@ public abstract class BatchAction implements Action<BatchResult> {
 
     private OnException onException;
 
+    private boolean parallel;
+
     /**
      * Constructs a new batch action, which will attempt to execute the provided list of actions in order. If there is a
      * failure, it will follow the rules specified by <code>onException</code>.
@@ -49,7 +55,21 @@ public abstract class BatchAction implements Action<BatchResult> {
      * @param actions     The list of actions to execute.
      */
     public BatchAction(OnException onException, Action<?>... actions) {
+        this(onException, false, actions);
+    }
+
+    /**
+     * Constructs a new batch action. If <code>parallel</code> is <code>true</code>, the actions must not depend on each
+     * other since they may be executed concurrently and in any order. If there is a failure, it will follow the rules
+     * specified by <code>onException</code>.
+     *
+     * @param onException If there is an exception, specify the behaviour.
+     * @param parallel    Whether the actions can be executed concurrently.
+     * @param actions     The list of actions to execute.
+     */
+    public BatchAction(OnException onException, boolean parallel, Action<?>... actions) {
         this.onException = onException;
+        this.parallel = parallel;
         this.actions = actions;
     }
 
@@ -76,4 +96,13 @@ public abstract class BatchAction implements Action<BatchResult> {
     public OnException getOnException() {
         return onException;
     }
+
+    /**
+     * Whether the actions are independent and can be executed concurrently.
+     *
+     * @return <code>true</code> if the actions can be executed in parallel.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
 }
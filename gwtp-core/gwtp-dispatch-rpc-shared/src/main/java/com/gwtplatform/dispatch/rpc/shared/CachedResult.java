@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.shared;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of an idempotent action on the server, so its handler only runs when the result isn't already
+ * cached. The action is always checked by its server-side {@code ActionValidator} before the cache is looked up.
+ * <p/>
+ * Results are cached by the action itself, so the action must implement {@link Object#equals(Object)} and
+ * {@link Object#hashCode()}, or provide its key by implementing {@link HasCacheKey}. Cached results are shared, they
+ * must not be modified by server-side callers.
+ * <p/>
+ * For example:
+ * <pre>
+ * {@literal @}CachedResult(timeToLiveSeconds = 300, invalidatedBy = UpdateCountryAction.class)
+ * public class GetCountriesAction extends UnsecuredActionImpl&lt;GetCountriesResult&gt; {
+ *     // ...
+ * }
+ * </pre>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachedResult {
+    /**
+     * The users who can receive a cached result.
+     */
+    enum Scope {
+        /**
+         * Results are cached separately for each user, identified by the remote user of the request or else by its
+         * session. Results are not cached for requests without user and without session.
+         */
+        USER,
+        /**
+         * Results are shared by all users.
+         */
+        SHARED
+    }
+
+    /**
+     * @return The number of seconds a result stays in the cache.
+     */
+    int timeToLiveSeconds() default 60;
+
+    /**
+     * @return The maximum number of results cached for this action class. The least recently used results are evicted
+     * first.
+     */
+    int maxEntries() default 1000;
+
+    Scope scope() default Scope.USER;
+
+    /**
+     * @return The actions that modify the data returned by this action. The results of this action are evicted when
+     * one of these actions is executed or undone.
+     */
+    Class<? extends Action<?>>[] invalidatedBy() default {};
+}
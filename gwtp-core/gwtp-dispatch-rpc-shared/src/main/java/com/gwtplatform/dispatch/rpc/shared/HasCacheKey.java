@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.shared;
+
+/**
+ * Implemented by a {@link CachedResult cached} action that doesn't implement {@link Object#equals(Object)} and
+ * {@link Object#hashCode()}, or whose results depend on part of its state only.
+ */
+public interface HasCacheKey {
+    /**
+     * @return The key of the action's results in the server-side cache. Actions with equal keys share their results.
+     */
+    Object getCacheKey();
+}
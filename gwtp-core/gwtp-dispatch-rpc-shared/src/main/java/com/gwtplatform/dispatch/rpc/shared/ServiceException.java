@@ -39,4 +39,12 @@ public class ServiceException extends Exception implements IsSerializable {
     public ServiceException(Throwable cause) {
         super(cause.getMessage());
     }
+
+    /**
+     * Constructs an exception that doesn't capture a stack trace if {@code writableStackTrace} is {@code false}. The
+     * server uses it for the exceptions it sends to the client, which never carry a stack trace.
+     */
+    public ServiceException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.Locale;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractEagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.AbstractDefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.rpc.shared.action.TestResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Measures the overhead added by {@link AbstractDispatchImpl} to the execution of an action, using a handler that does
+ * no work. Each round compares the time of a dispatched execution with the time of a direct call to the handler.
+ * <p/>
+ * Run it with {@code java -cp <test classpath> com.gwtplatform.dispatch.rpc.server.DispatchBenchmark [iterations]}.
+ */
+public class DispatchBenchmark {
+    private static class NoOpActionHandler extends AbstractActionHandler<TestAction, TestResult> {
+        private final TestResult result = new TestResult(true);
+
+        NoOpActionHandler() {
+            super(TestAction.class);
+        }
+
+        @Override
+        public TestResult execute(TestAction action, ExecutionContext context) {
+            return result;
+        }
+
+        @Override
+        public void undo(TestAction action, TestResult result, ExecutionContext context) {
+        }
+    }
+
+    private static class Registry extends AbstractEagerActionHandlerValidatorRegistryImpl {
+    }
+
+    private static class BenchmarkDispatch extends AbstractDispatchImpl {
+        BenchmarkDispatch(Registry registry) {
+            super(registry);
+        }
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) throws ActionException, ServiceException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        NoOpActionHandler handler = new NoOpActionHandler();
+        Registry registry = new Registry();
+        registry.addActionHandlerValidator(TestAction.class,
+                new ActionHandlerValidatorInstance(new AbstractDefaultActionValidator(), handler));
+        Dispatch dispatch = new BenchmarkDispatch(registry);
+        TestAction action = new TestAction("benchmark");
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            measureDispatch(dispatch, action, iterations);
+            measureHandler(handler, action, iterations);
+        }
+
+        double dispatchTotal = 0;
+        double handlerTotal = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            dispatchTotal += measureDispatch(dispatch, action, iterations);
+            handlerTotal += measureHandler(handler, action, iterations);
+        }
+
+        double dispatchNanos = dispatchTotal / MEASURED_ROUNDS;
+        double handlerNanos = handlerTotal / MEASURED_ROUNDS;
+        System.out.println(String.format(Locale.ROOT,
+                "dispatch: %.1f ns/op, handler: %.1f ns/op, overhead: %.1f ns/op",
+                dispatchNanos, handlerNanos, dispatchNanos - handlerNanos));
+    }
+
+    private static double measureDispatch(Dispatch dispatch, TestAction action, int iterations)
+            throws ActionException, ServiceException {
+        int hashes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            hashes += dispatch.execute(action).hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = hashes;
+        return (double) elapsed / iterations;
+    }
+
+    private static double measureHandler(NoOpActionHandler handler, TestAction action, int iterations) {
+        int hashes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            hashes += handler.execute(action, null).hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = hashes;
+        return (double) elapsed / iterations;
+    }
+}
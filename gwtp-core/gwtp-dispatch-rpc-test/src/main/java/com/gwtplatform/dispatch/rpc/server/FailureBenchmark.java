@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractEagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.AbstractDefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.rpc.shared.action.TestResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Measures the cost of failure-heavy traffic going through {@link AbstractDispatchServiceImpl}, using handlers that
+ * always reject their action. Business failures are measured with and without capturing a stack trace. Log records
+ * are published to a handler that only counts them.
+ * <p/>
+ * Run it with {@code java -cp <test classpath> com.gwtplatform.dispatch.rpc.server.FailureBenchmark [iterations]}.
+ */
+public class FailureBenchmark {
+    private static class BusinessException extends ActionException {
+        private static final long serialVersionUID = 1L;
+
+        BusinessException(String message, boolean writableStackTrace) {
+            super(message, null, false, writableStackTrace);
+        }
+    }
+
+    private static class RejectingActionHandler extends AbstractActionHandler<TestAction, TestResult> {
+        private final boolean writableStackTrace;
+
+        RejectingActionHandler(boolean writableStackTrace) {
+            super(TestAction.class);
+
+            this.writableStackTrace = writableStackTrace;
+        }
+
+        @Override
+        public TestResult execute(TestAction action, ExecutionContext context) throws ActionException {
+            throw new BusinessException("Rejected", writableStackTrace);
+        }
+
+        @Override
+        public void undo(TestAction action, TestResult result, ExecutionContext context) {
+        }
+    }
+
+    private static class CountingHandler extends Handler {
+        private final AtomicLong published = new AtomicLong();
+
+        @Override
+        public void publish(LogRecord record) {
+            published.incrementAndGet();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class Registry extends AbstractEagerActionHandlerValidatorRegistryImpl {
+    }
+
+    private static class BenchmarkDispatch extends AbstractDispatchImpl {
+        BenchmarkDispatch(Registry registry) {
+            super(registry);
+        }
+    }
+
+    private static class BenchmarkDispatchService extends AbstractDispatchServiceImpl {
+        private static final long serialVersionUID = 1L;
+
+        BenchmarkDispatchService(Logger logger, Dispatch dispatch) {
+            super(logger, dispatch, null);
+        }
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) throws ServiceException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        CountingHandler logHandler = new CountingHandler();
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(logHandler);
+
+        AbstractDispatchServiceImpl withStackTrace = createService(logger, true);
+        AbstractDispatchServiceImpl withoutStackTrace = createService(logger, false);
+        TestAction action = new TestAction("benchmark");
+
+        for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+            measure(withStackTrace, action, iterations);
+            measure(withoutStackTrace, action, iterations);
+        }
+
+        long loggedBefore = logHandler.published.get();
+        double withTotal = 0;
+        double withoutTotal = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; ++round) {
+            withTotal += measure(withStackTrace, action, iterations);
+            withoutTotal += measure(withoutStackTrace, action, iterations);
+        }
+
+        long failures = 2L * MEASURED_ROUNDS * iterations;
+        System.out.println(String.format(Locale.ROOT,
+                "with stack trace: %.1f ns/op, without stack trace: %.1f ns/op, logged: %d of %d failures",
+                withTotal / MEASURED_ROUNDS, withoutTotal / MEASURED_ROUNDS,
+                logHandler.published.get() - loggedBefore, failures));
+    }
+
+    private static AbstractDispatchServiceImpl createService(Logger logger, boolean writableStackTrace) {
+        Registry registry = new Registry();
+        registry.addActionHandlerValidator(TestAction.class, new ActionHandlerValidatorInstance(
+                new AbstractDefaultActionValidator(), new RejectingActionHandler(writableStackTrace)));
+
+        return new BenchmarkDispatchService(logger, new BenchmarkDispatch(registry));
+    }
+
+    private static double measure(AbstractDispatchServiceImpl dispatchService, TestAction action, int iterations)
+            throws ServiceException {
+        int hashes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            try {
+                dispatchService.execute(null, action);
+            } catch (ActionException e) {
+                hashes += e.hashCode();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = hashes;
+        return (double) elapsed / iterations;
+    }
+}
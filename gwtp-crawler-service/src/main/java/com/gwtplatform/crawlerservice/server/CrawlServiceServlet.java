@@ -16,121 +16,252 @@
 
 package com.gwtplatform.crawlerservice.server;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
-import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import com.gargoylesoftware.htmlunit.NicelyResynchronizingAjaxController;
-import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.WebRequest;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
-import com.googlecode.objectify.Key;
+import com.gwtplatform.crawler.server.MetricsRegistry;
 import com.gwtplatform.crawlerservice.server.domain.CachedPage;
-import com.gwtplatform.crawlerservice.server.service.CachedPageDao;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+import com.gwtplatform.crawlerservice.server.render.BatchRenderer;
+import com.gwtplatform.crawlerservice.server.render.RefreshScheduler;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor;
+import com.gwtplatform.crawlerservice.server.render.RenderPriority;
+import com.gwtplatform.crawlerservice.server.render.RenderRejectedException;
+import com.gwtplatform.crawlerservice.server.render.RenderedPage;
+import com.gwtplatform.crawlerservice.server.service.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.service.FetchLeaseManager;
 
 /**
  * Servlet that makes it possible to fetch an external page, renders it using HTMLUnit and returns the HTML page.
+ * <p/>
+ * Requests with the {@code metrics} parameter and a valid key get the report of the {@link MetricsRegistry} instead.
+ * <p/>
+ * {@code POST} requests start rendering a batch of pages with the {@link BatchRenderer} and answer with
+ * {@code 202 Accepted} right away. The report of the batch is logged once all the pages are processed. Only one batch
+ * runs at a time, other requests get {@code 503 Service Unavailable}. The body lists place tokens, one per line, which
+ * are appended to the {@code base} parameter. The pages listed by the sitemap in the {@code sitemap} parameter are
+ * added to the batch. The {@code concurrency} parameter bounds the number of pages rendered at the same time. Pages
+ * that are still fresh are skipped unless the {@code force} parameter is {@code true}. For example, during a deploy:
+ * <pre>curl -H "Content-Type: text/plain" --data-binary @placeTokens.txt \
+ *     "http://crawler.example.com/?key=KEY&amp;base=http%3A%2F%2Fexample.com%2F&amp;concurrency=8&amp;force=true"
+ * </pre>
  */
 @Singleton
 public class CrawlServiceServlet extends HttpServlet {
-
-    private static class SyncAllAjaxController extends NicelyResynchronizingAjaxController {
-        private static final long serialVersionUID = 1L;
-
-        @Override
-        public boolean processSynchron(HtmlPage page, WebRequest request, boolean async) {
-            return true;
-        }
-    }
-
     private static final String CHAR_ENCODING = "UTF-8";
 
-    private static final long serialVersionUID = -6129110224710383122L;
+    /**
+     * Request parameter holding the version of the protocol spoken by the client. Clients that don't send it get the
+     * legacy protocol: the page, or {@code FETCH_IN_PROGRESS} as the only line of the body.
+     * <p/>
+     * Starting with version 2, a request for a page being rendered is held until the render completes or until the
+     * number of milliseconds in the {@code wait} parameter elapse. The response carries the {@code X-Crawl-Status}
+     * header. If the page is still not ready, the status code is {@code 202 Accepted} and {@code Retry-After} holds the
+     * number of seconds to wait before asking again.
+     */
+    private static final String PROTOCOL_PARAMETER = "protocol";
+    private static final String WAIT_PARAMETER = "wait";
+    private static final String METRICS_PARAMETER = "metrics";
+    private static final String BASE_PARAMETER = "base";
+    private static final String SITEMAP_PARAMETER = "sitemap";
+    private static final String CONCURRENCY_PARAMETER = "concurrency";
+    private static final String FORCE_PARAMETER = "force";
+    private static final int DEFAULT_BATCH_CONCURRENCY = 4;
+    private static final String PROTOCOL_HEADER = "X-Crawl-Protocol";
+    private static final String STATUS_HEADER = "X-Crawl-Status";
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final String STATUS_RENDERED = "RENDERED";
+    private static final String STATUS_FETCH_IN_PROGRESS = "FETCH_IN_PROGRESS";
+    private static final int LONG_POLL_PROTOCOL = 2;
+    private static final long MAX_WAIT_MILLIS = 20000;
+    private static final long DATASTORE_POLL_MILLIS = 250;
+    private static final int RETRY_AFTER_SEC = 1;
+    private static final int OVERLOADED_RETRY_AFTER_SEC = 5;
 
-    @Inject(optional = true)
-    @HtmlUnitTimeoutMillis
-    private final long timeoutMillis = 5000;
-    private final long jsTimeoutMillis = 2000;
-    private final long pageWaitMillis = 100;
-    private final long maxLoopChecks = 2;
+    private static final long serialVersionUID = -6129110224710383122L;
 
     @Inject(optional = true)
     @CachedPageTimeoutSec
-    private final long cachedPageTimeoutSec = 15 * 60;
+    private long cachedPageTimeoutSec = 15 * 60;
 
     private final Logger log;
-    private final Provider<WebClient> webClientProvider;
+    private final RenderExecutor renderExecutor;
+    private final RefreshScheduler refreshScheduler;
+    private final BatchRenderer batchRenderer;
 
     private final String key;
 
-    private final CachedPageDao cachedPageDao;
+    private final CachedPageStore cachedPageStore;
+    private final FetchLeaseManager fetchLeaseManager;
+    private final MetricsRegistry metricsRegistry;
+    private final MetricsRegistry.Counter hitCount;
+    private final MetricsRegistry.Counter missCount;
+    private final MetricsRegistry.Counter inProgressCount;
+    private final MetricsRegistry.Counter staleCount;
+    private final MetricsRegistry.Counter notModifiedCount;
+    private final MetricsRegistry.Counter bytesServed;
+
+    private final ConcurrentMap<String, CountDownLatch> rendersInProgress = new ConcurrentHashMap<>();
 
     @Inject
     protected CrawlServiceServlet(
-            Provider<WebClient> webClientProvider,
+            RenderExecutor renderExecutor,
+            RefreshScheduler refreshScheduler,
+            BatchRenderer batchRenderer,
             Logger log,
-            CachedPageDao cachedPageDao,
+            CachedPageStore cachedPageStore,
+            FetchLeaseManager fetchLeaseManager,
+            MetricsRegistry metricsRegistry,
             @ServiceKey String key) {
-        this.webClientProvider = webClientProvider;
+        this.renderExecutor = renderExecutor;
+        this.refreshScheduler = refreshScheduler;
+        this.batchRenderer = batchRenderer;
         this.log = log;
         this.key = key;
-        this.cachedPageDao = cachedPageDao;
+        this.cachedPageStore = cachedPageStore;
+        this.fetchLeaseManager = fetchLeaseManager;
+        this.metricsRegistry = metricsRegistry;
+
+        hitCount = metricsRegistry.counter("cache.hits");
+        missCount = metricsRegistry.counter("cache.misses");
+        inProgressCount = metricsRegistry.counter("cache.inProgress");
+        staleCount = metricsRegistry.counter("cache.stale");
+        notModifiedCount = metricsRegistry.counter("response.notModified");
+        bytesServed = metricsRegistry.counter("response.bytes");
     }
 
     @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
-        PrintWriter out = null;
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
-            // Encoding needs to be set BEFORE calling response.getWriter()
             response.setCharacterEncoding(CHAR_ENCODING);
             response.setHeader("Content-Type", "text/plain; charset=" + CHAR_ENCODING);
 
-            out = response.getWriter();
             validateKey(request);
 
+            if (request.getParameter(METRICS_PARAMETER) != null) {
+                metricsRegistry.report(response.getWriter());
+                return;
+            }
+
             String url = request.getParameter("url");
             if (!Strings.isNullOrEmpty(url)) {
                 url = URLDecoder.decode(url, CHAR_ENCODING);
+                refreshScheduler.recordAccess(url);
 
-                CachedPage cachedPage = cachedPageDao.get(Key.create(CachedPage.class, url));
-
-                Date currDate = new Date();
+                boolean longPoll = isLongPoll(request);
+                if (longPoll) {
+                    response.setHeader(PROTOCOL_HEADER, String.valueOf(LONG_POLL_PROTOCOL));
+                }
 
-                if (needToFetchPage(cachedPage, currDate, out)) {
-                    cachedPage = createPlaceholderPage(url, currDate);
-                    String renderedHtml = renderPage(url);
-                    storeFetchedPage(cachedPage, renderedHtml);
-                    out.println(renderedHtml);
+                CachedPage cachedPage = cachedPageStore.get(url);
+                FetchLease lease = needToFetchPage(url, cachedPage) ? fetchLeaseManager.tryAcquire(url) : null;
+
+                if (lease != null && isFetchInProgress(cachedPage)) {
+                    missCount.increment(1);
+                    CachedPage placeholderPage = createPlaceholderPage(url, new Date());
+                    RenderedPage renderedPage = renderAndStorePage(placeholderPage, RenderPriority.FIRST_RENDER, lease);
+                    response.setHeader(SERVER_TIMING_HEADER, renderedPage.getTimings().toServerTiming());
+                    setStatus(response, longPoll, STATUS_RENDERED);
+                    writePage(request, response, placeholderPage);
+                } else if (lease != null) {
+                    missCount.increment(1);
+                    refreshAndWritePage(request, response, cachedPage, lease, longPoll);
+                } else if (isFetchInProgress(cachedPage) && longPoll) {
+                    inProgressCount.increment(1);
+                    cachedPage = awaitRender(url, getWaitMillis(request));
+                    if (cachedPage != null && !cachedPage.isFetchInProgress()) {
+                        setStatus(response, true, STATUS_RENDERED);
+                        writePage(request, response, cachedPage);
+                    } else {
+                        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+                        response.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SEC));
+                        setStatus(response, true, STATUS_FETCH_IN_PROGRESS);
+                        response.getWriter().println(STATUS_FETCH_IN_PROGRESS);
+                    }
+                } else if (isFetchInProgress(cachedPage)) {
+                    inProgressCount.increment(1);
+                    response.getWriter().println(STATUS_FETCH_IN_PROGRESS);
+                } else {
+                    hitCount.increment(1);
+                    setStatus(response, longPoll, STATUS_RENDERED);
+                    writePage(request, response, cachedPage);
                 }
             }
         } catch (InvalidKeyException invalidKeyException) {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-            out.println(invalidKeyException.getMessage());
+            response.getWriter().println(invalidKeyException.getMessage());
+        } catch (RenderRejectedException renderRejectedException) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(OVERLOADED_RETRY_AFTER_SEC));
+            response.getWriter().println(renderRejectedException.getMessage());
         } catch (IOException ioException) {
             ioException.printStackTrace();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-        } finally {
-            if (out != null) {
-                out.close();
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            response.setCharacterEncoding(CHAR_ENCODING);
+            response.setHeader("Content-Type", "text/plain; charset=" + CHAR_ENCODING);
+
+            validateKey(request);
+
+            List<String> urls = new ArrayList<>();
+            String base = request.getParameter(BASE_PARAMETER);
+            if (!Strings.isNullOrEmpty(base)) {
+                urls.addAll(BatchRenderer.toUrls(base, readLines(request)));
+            }
+            urls.addAll(batchRenderer.readSitemap(request.getParameter(SITEMAP_PARAMETER)));
+
+            boolean force = Boolean.parseBoolean(request.getParameter(FORCE_PARAMETER));
+            if (batchRenderer.submit(urls, getConcurrency(request), force)) {
+                response.setStatus(HttpServletResponse.SC_ACCEPTED);
+                response.getWriter().println("Rendering " + urls.size() + " pages.");
+            } else {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", String.valueOf(OVERLOADED_RETRY_AFTER_SEC));
+                response.getWriter().println("A batch is already in progress.");
             }
+        } catch (InvalidKeyException invalidKeyException) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.getWriter().println(invalidKeyException.getMessage());
         }
     }
 
+    @Override
+    public void init() {
+        refreshScheduler.start();
+    }
+
+    @Override
+    public void destroy() {
+        refreshScheduler.stop();
+        renderExecutor.shutdown();
+        fetchLeaseManager.shutdown();
+        super.destroy();
+    }
+
     private void validateKey(HttpServletRequest request)
             throws InvalidKeyException, UnsupportedEncodingException {
         String receivedKey = request.getParameter("key");
@@ -146,39 +277,220 @@ public class CrawlServiceServlet extends HttpServlet {
         }
     }
 
+    private boolean isLongPoll(HttpServletRequest request) {
+        String protocol = request.getParameter(PROTOCOL_PARAMETER);
+        try {
+            return protocol != null && Integer.parseInt(protocol) >= LONG_POLL_PROTOCOL;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private List<String> readLines(HttpServletRequest request) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = request.getReader();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private int getConcurrency(HttpServletRequest request) {
+        String concurrency = request.getParameter(CONCURRENCY_PARAMETER);
+        try {
+            return concurrency == null ? DEFAULT_BATCH_CONCURRENCY : Integer.parseInt(concurrency);
+        } catch (NumberFormatException e) {
+            return DEFAULT_BATCH_CONCURRENCY;
+        }
+    }
+
+    private long getWaitMillis(HttpServletRequest request) {
+        String wait = request.getParameter(WAIT_PARAMETER);
+        try {
+            return wait == null ? MAX_WAIT_MILLIS : Math.max(0, Math.min(Long.parseLong(wait), MAX_WAIT_MILLIS));
+        } catch (NumberFormatException e) {
+            return MAX_WAIT_MILLIS;
+        }
+    }
+
+    /**
+     * Writes the content of {@code cachedPage}. The stored gzip-compressed content is sent as is to clients that accept
+     * it. Clients that already hold the same version of the page get {@code 304 Not Modified}.
+     */
+    private void writePage(HttpServletRequest request, HttpServletResponse response, CachedPage cachedPage)
+            throws IOException {
+        response.setHeader("Vary", "Accept-Encoding");
+
+        String contentHash = cachedPage.getContentHash();
+        if (contentHash != null) {
+            String etag = "W/\"" + contentHash + "\"";
+            response.setHeader("ETag", etag);
+
+            if (matchesETag(request.getHeader("If-None-Match"), etag)) {
+                notModifiedCount.increment(1);
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        byte[] compressedContent = cachedPage.getCompressedContent();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (compressedContent != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setContentLength(compressedContent.length);
+            response.getOutputStream().write(compressedContent);
+            bytesServed.increment(compressedContent.length);
+        } else {
+            byte[] content = (cachedPage.getContent() + "\n").getBytes(StandardCharsets.UTF_8);
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+            bytesServed.increment(content.length);
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code ifNoneMatch} lists {@code etag}, using the weak comparison.
+     */
+    private boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        String opaqueTag = etag.substring(2);
+        for (String entityTag : ifNoneMatch.split(",")) {
+            String candidate = entityTag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || opaqueTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setStatus(HttpServletResponse response, boolean longPoll, String status) {
+        if (longPoll) {
+            response.setHeader(STATUS_HEADER, status);
+        }
+    }
+
+    /**
+     * Renders the page for {@code cachedPage} and stores it. Requests waiting on this render on the same instance are
+     * notified as soon as the page is stored. If a {@link RenderPriority#FIRST_RENDER first render} is rejected, its
+     * placeholder page is removed. The lease is released in all cases.
+     *
+     * @param cachedPage The page to fill, stored once the render succeeds.
+     * @param priority   The priority of the render.
+     * @param lease      The lease acquired for the page.
+     * @return The rendered page.
+     */
+    private RenderedPage renderAndStorePage(CachedPage cachedPage, RenderPriority priority, FetchLease lease)
+            throws IOException, RenderRejectedException {
+        String url = cachedPage.getUrl();
+        CountDownLatch render = new CountDownLatch(1);
+        rendersInProgress.put(url, render);
+        try {
+            RenderedPage renderedPage = renderExecutor.render(url, priority);
+            storeFetchedPage(cachedPage, renderedPage.getHtml());
+            return renderedPage;
+        } catch (RenderRejectedException e) {
+            if (priority == RenderPriority.FIRST_RENDER) {
+                cachedPageStore.delete(cachedPage);
+            }
+            throw e;
+        } finally {
+            fetchLeaseManager.release(lease);
+            rendersInProgress.remove(url, render);
+            render.countDown();
+        }
+    }
+
+    /**
+     * Renders an expired page again and writes the new version. The expired page stays in the store until the new
+     * version is stored, and it's written instead if the render is rejected or fails.
+     */
+    private void refreshAndWritePage(HttpServletRequest request, HttpServletResponse response, CachedPage expiredPage,
+            FetchLease lease, boolean longPoll) throws IOException {
+        CachedPage refreshedPage = new CachedPage();
+        refreshedPage.setUrl(expiredPage.getUrl());
+        refreshedPage.setFetchDate(new Date());
+
+        CachedPage servedPage = refreshedPage;
+        try {
+            RenderedPage renderedPage = renderAndStorePage(refreshedPage, RenderPriority.REFRESH, lease);
+            response.setHeader(SERVER_TIMING_HEADER, renderedPage.getTimings().toServerTiming());
+        } catch (RenderRejectedException | IOException e) {
+            log.log(Level.INFO, "Serving the expired page, its refresh failed: " + expiredPage.getUrl(), e);
+            staleCount.increment(1);
+            servedPage = expiredPage;
+        }
+
+        setStatus(response, longPoll, STATUS_RENDERED);
+        writePage(request, response, servedPage);
+    }
+
+    /**
+     * Waits until the page at {@code url} is no longer being fetched, or until {@code waitMillis} elapse. If the render
+     * runs on this instance, the wait ends as soon as it completes. Otherwise the store is checked periodically.
+     *
+     * @param url        The URL of the page.
+     * @param waitMillis The maximum time to wait.
+     * @return The latest version of the cached page, can be {@code null}.
+     */
+    private CachedPage awaitRender(String url, long waitMillis) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+
+        try {
+            CountDownLatch render = rendersInProgress.get(url);
+            if (render != null) {
+                render.await(waitMillis, TimeUnit.MILLISECONDS);
+                return cachedPageStore.get(url);
+            }
+
+            CachedPage cachedPage = cachedPageStore.get(url);
+            long remaining = deadline - System.currentTimeMillis();
+            while (cachedPage != null && cachedPage.isFetchInProgress() && remaining > 0) {
+                Thread.sleep(Math.min(DATASTORE_POLL_MILLIS, remaining));
+                cachedPage = cachedPageStore.get(url);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return cachedPage;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cachedPageStore.get(url);
+        }
+    }
+
     private void storeFetchedPage(CachedPage cachedPage, String stringBuilder) {
         cachedPage.setContent(stringBuilder);
         cachedPage.setFetchInProgress(false);
-        cachedPageDao.put(cachedPage);
+        cachedPageStore.save(cachedPage);
     }
 
     /**
-     * Checks if the page needs to be fetched. If it does not need to be fetched, but a fetch is
-     * already in progress, then it prints out {@code FETCH_IN_PROGRESS} to the specified {@link PrintWriter}.
+     * Checks if the page needs to be fetched. If it does not need to be fetched, either the cached content can be
+     * returned or a fetch is already in progress. The page still has to be fetched by whoever acquires its lease.
      *
+     * @param url          The URL of the page.
      * @param matchingPage The matching page, can be {@code null} if no page matches.
-     * @param currDate     The current date.
-     * @param out          The {@link PrintWriter} to write to, if needed.
      * @return {@code true} if the page needs to be fetched, {@code false} otherwise.
      */
-    private boolean needToFetchPage(CachedPage matchingPage, Date currDate, PrintWriter out) {
+    private boolean needToFetchPage(String url, CachedPage matchingPage) {
         if (matchingPage == null || matchingPage.isExpired(cachedPageTimeoutSec)) {
             return true;
         }
 
-        if (matchingPage.isFetchInProgress()) {
-            // If fetch is in progress since more than 60 seconds, we consider something went wrong and fetch again.
-            if (currDate.getTime() > matchingPage.getFetchDate().getTime() + 60000) {
-                cachedPageDao.delete(matchingPage);
-                return true;
-            } else {
-                out.println("FETCH_IN_PROGRESS");
-                return false;
-            }
-        } else {
-            out.println(matchingPage.getContent());
-            return false;
-        }
+        // A placeholder whose lease expired belongs to a render that failed or was abandoned.
+        return matchingPage.isFetchInProgress() && !fetchLeaseManager.isHeld(url);
+    }
+
+    /**
+     * @return {@code true} if there is no content to serve yet because the page is being fetched by another render.
+     */
+    private boolean isFetchInProgress(CachedPage cachedPage) {
+        return cachedPage == null || cachedPage.isFetchInProgress();
     }
 
     /**
@@ -193,59 +505,7 @@ public class CrawlServiceServlet extends HttpServlet {
         result.setUrl(url);
         result.setFetchDate(currDate);
         result.setFetchInProgress(true);
-        cachedPageDao.put(result);
+        cachedPageStore.save(result);
         return result;
     }
-
-    /**
-     * Fetches the page at {@code url} and renders the page in a {@link StringBuilder}. The rendered page is prefixed
-     * with a message indicating this is a non-interactive version.
-     *
-     * @param url The URL of the page to render.
-     * @return The rendered page, in a {@link StringBuilder}.
-     */
-    private String renderPage(String url) throws IOException {
-        WebClient webClient = webClientProvider.get();
-
-        webClient.getCache().clear();
-        webClient.getOptions().setCssEnabled(false);
-        webClient.getOptions().setJavaScriptEnabled(true);
-        webClient.getOptions().setThrowExceptionOnScriptError(false);
-        webClient.getOptions().setRedirectEnabled(true);
-        webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
-        webClient.setAjaxController(new SyncAllAjaxController());
-        webClient.setCssErrorHandler(new SilentCssErrorHandler());
-
-        WebRequest webRequest = new WebRequest(new URL(url), "text/html");
-        HtmlPage page = webClient.getPage(webRequest);
-        webClient.getJavaScriptEngine().pumpEventLoop(timeoutMillis);
-
-        int waitForBackgroundJavaScript = webClient.waitForBackgroundJavaScript(jsTimeoutMillis);
-        int loopCount = 0;
-
-        while (waitForBackgroundJavaScript > 0 && loopCount < maxLoopChecks) {
-            ++loopCount;
-            waitForBackgroundJavaScript = webClient.waitForBackgroundJavaScript(jsTimeoutMillis);
-
-            if (waitForBackgroundJavaScript == 0) {
-                log.fine("HtmlUnit exits background javascript at loop counter " + loopCount);
-                break;
-            }
-
-            synchronized (page) {
-                log.fine("HtmlUnit waits for background javascript at loop counter " + loopCount);
-                try {
-                    page.wait(pageWaitMillis);
-                } catch (InterruptedException e) {
-                    log.log(Level.SEVERE, "HtmlUnit ERROR on page.wait at loop counter " + loopCount, e);
-                }
-            }
-        }
-
-        webClient.closeAllWindows();
-
-        return Pattern.compile("<style>.*?</style>", Pattern.DOTALL)
-                .matcher(page.asXml().replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", ""))
-                .replaceAll("");
-    }
 }
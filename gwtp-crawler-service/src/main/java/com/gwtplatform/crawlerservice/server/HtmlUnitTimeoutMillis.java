@@ -27,8 +27,8 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
- * Use this annotation to indicate how long HtmlUnit should pump the javascript
- * event loop before timing out. Use in your
+ * Use this annotation to indicate how long HtmlUnit should wait for a page to
+ * settle before timing out. Use in your
  * {@link com.google.inject.AbstractModule} with a call to
  * {@code bindConstant().annotatedWith(HtmlUnitTimeout.class).to(10000)}.
  */
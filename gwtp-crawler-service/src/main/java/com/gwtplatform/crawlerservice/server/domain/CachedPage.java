@@ -16,21 +16,39 @@
 
 package com.gwtplatform.crawlerservice.server.domain;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import com.google.common.hash.Hashing;
 import com.googlecode.objectify.annotation.Entity;
 import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Ignore;
 
 /**
- * Stores a cached version of a page.
+ * Stores a cached version of a page. The content is stored gzip-compressed.
  */
 @Entity
 public class CachedPage {
+    private static final int BUFFER_SIZE = 8192;
+
     @Id
     private String url;
     private Date fetchDate;
     private boolean fetchInProgress;
+    /**
+     * Uncompressed content of pages stored by earlier versions.
+     */
     private String content;
+    private byte[] compressedContent;
+    @Ignore
+    private String contentHash;
 
     public void setUrl(String url) {
         this.url = url;
@@ -57,14 +75,74 @@ public class CachedPage {
     }
 
     public void setContent(String content) {
-        this.content = content;
+        this.content = null;
+        this.compressedContent = content == null ? null : gzip(content.getBytes(StandardCharsets.UTF_8));
+        this.contentHash = null;
     }
 
     public String getContent() {
-        return content;
+        if (compressedContent == null) {
+            return content;
+        }
+        return new String(gunzip(compressedContent), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param compressedContent The content, UTF-8 encoded and gzip-compressed.
+     */
+    public void setCompressedContent(byte[] compressedContent) {
+        this.content = null;
+        this.compressedContent = compressedContent;
+        this.contentHash = null;
+    }
+
+    /**
+     * @return The content, UTF-8 encoded and gzip-compressed, or {@code null} if the page has no content.
+     */
+    public byte[] getCompressedContent() {
+        if (compressedContent == null && content != null) {
+            compressedContent = gzip(content.getBytes(StandardCharsets.UTF_8));
+            content = null;
+        }
+        return compressedContent;
+    }
+
+    /**
+     * @return A hash of the content, suitable as an entity tag, or {@code null} if the page has no content.
+     */
+    public String getContentHash() {
+        byte[] compressed = getCompressedContent();
+        if (contentHash == null && compressed != null) {
+            contentHash = Hashing.murmur3_128().hashBytes(compressed).toString();
+        }
+        return contentHash;
     }
 
     public boolean isExpired(long cachedPageTimeoutSec) {
         return new Date().getTime() > fetchDate.getTime() + cachedPageTimeoutSec * 1000;
     }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, BUFFER_SIZE)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
 }
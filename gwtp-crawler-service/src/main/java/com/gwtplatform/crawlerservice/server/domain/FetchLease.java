@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.domain;
+
+import java.util.Objects;
+
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+
+/**
+ * Grants a crawl service node the exclusive right to render a page until the lease expires. Leases are never modified
+ * in place, a renewed lease is a new instance.
+ */
+@Entity
+public class FetchLease {
+    @Id
+    private String url;
+    private String ownerId;
+    private long expiresAt;
+
+    public FetchLease() {
+    }
+
+    /**
+     * @param url       The URL of the page to render.
+     * @param ownerId   The identifier of the node holding the lease.
+     * @param expiresAt The time, in milliseconds since the epoch, at which the lease expires.
+     */
+    public FetchLease(String url, String ownerId, long expiresAt) {
+        this.url = url;
+        this.ownerId = ownerId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        FetchLease that = (FetchLease) o;
+        return expiresAt == that.expiresAt
+                && Objects.equals(url, that.url)
+                && Objects.equals(ownerId, that.ownerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, ownerId, expiresAt);
+    }
+}
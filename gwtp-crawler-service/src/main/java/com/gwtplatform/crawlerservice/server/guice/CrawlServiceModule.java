@@ -16,8 +16,6 @@
 
 package com.gwtplatform.crawlerservice.server.guice;
 
-import javax.inject.Singleton;
-
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.WebClient;
 import com.google.inject.Provides;
@@ -31,7 +29,6 @@ public class CrawlServiceModule extends ServletModule {
         serve("*").with(CrawlServiceServlet.class);
     }
 
-    @Singleton
     @Provides
     WebClient getWebClient() {
         return new WebClient(BrowserVersion.FIREFOX_38);
@@ -20,12 +20,14 @@ import com.googlecode.objectify.Objectify;
 import com.googlecode.objectify.ObjectifyFactory;
 import com.googlecode.objectify.ObjectifyService;
 import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
 
 /**
  */
 public class OfyService {
     static {
         factory().register(CachedPage.class);
+        factory().register(FetchLease.class);
     }
 
     public static Objectify ofy() {
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.base.Strings;
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.CachedPageTimeoutSec;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+import com.gwtplatform.crawlerservice.server.service.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.service.FetchLeaseManager;
+
+/**
+ * Renders a batch of pages and stores them, for example to fill the cache when a new version of the application is
+ * deployed. Pages are rendered through the {@link RenderExecutor} as {@link RenderPriority#PRERENDER pre-renders}, so
+ * a batch never starves the requests of crawlers. At most {@code concurrency} pages of the batch are rendered or
+ * waiting in the render queue at a time. Renders rejected because the service is busy are retried.
+ * <p/>
+ * Pages stored less than {@link CachedPageTimeoutSec} ago are skipped unless the batch is forced, for example because
+ * a new version of the application changed them.
+ */
+@Singleton
+public class BatchRenderer {
+    private enum Outcome {
+        RENDERED,
+        SKIPPED,
+        FAILED
+    }
+
+    private static final int MAX_CONCURRENCY = 64;
+    private static final int MAX_ATTEMPTS = 30;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    @Inject(optional = true)
+    @CachedPageTimeoutSec
+    private long cachedPageTimeoutSec = 15 * 60;
+
+    private final RenderExecutor renderExecutor;
+    private final CachedPageStore cachedPageStore;
+    private final FetchLeaseManager fetchLeaseManager;
+    private final Logger log;
+    private final MetricsRegistry.Counter renderedCount;
+    private final MetricsRegistry.Counter failedCount;
+    private final AtomicBoolean batchInProgress = new AtomicBoolean();
+
+    private long retryDelayMillis = RETRY_DELAY_MILLIS;
+
+    @Inject
+    BatchRenderer(
+            RenderExecutor renderExecutor,
+            CachedPageStore cachedPageStore,
+            FetchLeaseManager fetchLeaseManager,
+            MetricsRegistry metricsRegistry,
+            Logger log) {
+        this.renderExecutor = renderExecutor;
+        this.cachedPageStore = cachedPageStore;
+        this.fetchLeaseManager = fetchLeaseManager;
+        this.log = log;
+
+        renderedCount = metricsRegistry.counter("batch.rendered");
+        failedCount = metricsRegistry.counter("batch.failed");
+    }
+
+    /**
+     * Builds the URLs of the pages of an application from its place tokens, such as the tokens listed by
+     * {@code com.gwtplatform.mvp.shared.proxy.PlaceTokenRegistry}. Blank lines, lines starting with
+     * {@code #} and tokens with parameters, such as {@code /users/{id}}, are ignored.
+     *
+     * @param baseUrl The URL of the application host page.
+     * @param tokens  The place tokens.
+     * @return The URL of each page, in the order of the tokens.
+     */
+    public static List<String> toUrls(String baseUrl, Iterable<String> tokens) {
+        List<String> urls = new ArrayList<>();
+        for (String token : tokens) {
+            String trimmedToken = token.trim();
+            if (!trimmedToken.isEmpty() && !trimmedToken.startsWith("#") && !trimmedToken.contains("{")) {
+                urls.add(baseUrl + "#!" + trimmedToken);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * @param sitemapUrl The URL of a sitemap or sitemap index.
+     * @return The URLs of the pages listed by the sitemap.
+     */
+    public List<String> readSitemap(String sitemapUrl) throws IOException {
+        if (Strings.isNullOrEmpty(sitemapUrl)) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return SitemapReader.read(sitemapUrl);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to read the sitemap at " + sitemapUrl, e);
+        }
+    }
+
+    /**
+     * Starts rendering the pages at {@code urls} in the background, unless another batch is in progress. The report
+     * of the batch is logged once all the pages are processed.
+     *
+     * @param urls        The URLs of the pages.
+     * @param concurrency The maximum number of pages of this batch rendered at the same time.
+     * @param force       {@code true} to render pages that are still fresh.
+     * @return {@code true} if the batch was started, {@code false} if another batch is in progress.
+     */
+    public boolean submit(Collection<String> urls, int concurrency, boolean force) {
+        if (!batchInProgress.compareAndSet(false, true)) {
+            return false;
+        }
+
+        List<String> batch = new ArrayList<>(urls);
+        Thread thread = new Thread(() -> {
+            try {
+                render(batch, concurrency, force);
+            } finally {
+                batchInProgress.set(false);
+            }
+        }, "CrawlService-batch");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * @return {@code true} if a batch started with {@link #submit(Collection, int, boolean)} is in progress.
+     */
+    public boolean isBatchInProgress() {
+        return batchInProgress.get();
+    }
+
+    /**
+     * Renders and stores the pages at {@code urls}, waiting until all of them are processed.
+     *
+     * @param urls        The URLs of the pages.
+     * @param concurrency The maximum number of pages of this batch rendered at the same time.
+     * @param force       {@code true} to render pages that are still fresh.
+     * @return The report of the batch.
+     */
+    public BatchReport render(Collection<String> urls, int concurrency, boolean force) {
+        long start = System.currentTimeMillis();
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        List<String> failedUrls = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, MAX_CONCURRENCY)));
+        try {
+            for (String url : urls) {
+                workers.execute(() -> {
+                    Outcome outcome = renderAndStore(url, force);
+                    if (outcome == Outcome.RENDERED) {
+                        rendered.incrementAndGet();
+                    } else if (outcome == Outcome.SKIPPED) {
+                        skipped.incrementAndGet();
+                    } else {
+                        failedUrls.add(url);
+                    }
+                });
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+
+        BatchReport report = new BatchReport(urls.size(), rendered.get(), skipped.get(), failedUrls,
+                System.currentTimeMillis() - start);
+        if (log.isLoggable(Level.INFO)) {
+            log.info("Batch render completed: " + report.getRendered() + " rendered, " + report.getSkipped()
+                    + " skipped, " + report.getFailedUrls().size() + " failed in " + report.getElapsedMillis()
+                    + " ms.");
+        }
+        return report;
+    }
+
+    /**
+     * Visible for testing.
+     */
+    void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    private Outcome renderAndStore(String url, boolean force) {
+        if (!force && isFresh(cachedPageStore.get(url))) {
+            return Outcome.SKIPPED;
+        }
+
+        // Another node, or a request on this one, is already rendering the page.
+        FetchLease lease = fetchLeaseManager.tryAcquire(url);
+        if (lease == null) {
+            return Outcome.SKIPPED;
+        }
+
+        try {
+            RenderedPage renderedPage = renderWithRetries(url);
+
+            CachedPage cachedPage = new CachedPage();
+            cachedPage.setUrl(url);
+            cachedPage.setFetchDate(new Date());
+            cachedPage.setFetchInProgress(false);
+            cachedPage.setContent(renderedPage.getHtml());
+            cachedPageStore.save(cachedPage);
+
+            renderedCount.increment(1);
+            return Outcome.RENDERED;
+        } catch (IOException | RenderRejectedException | RuntimeException e) {
+            failedCount.increment(1);
+            log.log(Level.WARNING, "Batch render of " + url + " failed.", e);
+            return Outcome.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCount.increment(1);
+            return Outcome.FAILED;
+        } finally {
+            fetchLeaseManager.release(lease);
+        }
+    }
+
+    private RenderedPage renderWithRetries(String url)
+            throws IOException, RenderRejectedException, InterruptedException {
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                return renderExecutor.render(url, RenderPriority.PRERENDER);
+            } catch (RenderRejectedException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(retryDelayMillis);
+            }
+        }
+    }
+
+    private boolean isFresh(CachedPage cachedPage) {
+        return cachedPage != null && !cachedPage.isFetchInProgress() && !cachedPage.isExpired(cachedPageTimeoutSec);
+    }
+}
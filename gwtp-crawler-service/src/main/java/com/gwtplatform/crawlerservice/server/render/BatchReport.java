@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link BatchRenderer} run.
+ */
+public class BatchReport {
+    private final int total;
+    private final int rendered;
+    private final int skipped;
+    private final List<String> failedUrls;
+    private final long elapsedMillis;
+
+    BatchReport(int total, int rendered, int skipped, List<String> failedUrls, long elapsedMillis) {
+        this.total = total;
+        this.rendered = rendered;
+        this.skipped = skipped;
+        this.failedUrls = Collections.unmodifiableList(new ArrayList<>(failedUrls));
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return The number of pages in the batch.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The number of pages rendered and stored.
+     */
+    public int getRendered() {
+        return rendered;
+    }
+
+    /**
+     * @return The number of pages skipped because they were still fresh or another render held their lease.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return The URLs of the pages that could not be rendered.
+     */
+    public List<String> getFailedUrls() {
+        return failedUrls;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return The number of pages rendered per second.
+     */
+    public double getPagesPerSecond() {
+        return elapsedMillis == 0 ? 0 : rendered * 1000d / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("total ").append(total).append('\n')
+                .append("rendered ").append(rendered).append('\n')
+                .append("skipped ").append(skipped).append('\n')
+                .append("failed ").append(failedUrls.size()).append('\n')
+                .append("elapsed.millis ").append(elapsedMillis).append('\n')
+                .append("pagesPerSecond ").append(String.format(Locale.ROOT, "%.2f", getPagesPerSecond())).append('\n');
+        for (String failedUrl : failedUrls) {
+            report.append("failed.url ").append(failedUrl).append('\n');
+        }
+        return report.toString();
+    }
+}
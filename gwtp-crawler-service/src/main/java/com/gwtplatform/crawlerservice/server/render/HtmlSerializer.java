@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Node;
+
+import com.gargoylesoftware.htmlunit.html.DomAttr;
+import com.gargoylesoftware.htmlunit.html.DomCharacterData;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.DomNode;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+/**
+ * Serializes the DOM of a rendered page to HTML in a single pass. Crawlers don't need the styles and scripts of the
+ * page, so {@code style} and {@code script} elements are dropped. Structured data scripts, such as
+ * {@code application/ld+json}, are kept.
+ */
+final class HtmlSerializer {
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("area", "base", "br", "col",
+            "embed", "hr", "img", "input", "keygen", "link", "meta", "param", "source", "track", "wbr"));
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<>(Arrays.asList("noscript", "script"));
+
+    private HtmlSerializer() {
+    }
+
+    /**
+     * Writes {@code page} to {@code out} as HTML.
+     */
+    static void serialize(HtmlPage page, Appendable out) throws IOException {
+        DocumentType doctype = page.getDoctype();
+        if (doctype != null) {
+            serializeDoctype(doctype, out);
+        }
+
+        for (DomNode child = page.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (doctype == null || !isDoctypeComment(child)) {
+                serializeNode(child, false, out);
+            }
+        }
+    }
+
+    private static void serializeDoctype(DocumentType doctype, Appendable out) throws IOException {
+        String publicId = doctype.getPublicId();
+        String systemId = doctype.getSystemId();
+
+        out.append("<!DOCTYPE ").append(doctype.getName());
+        if (publicId != null && !publicId.isEmpty()) {
+            out.append(" PUBLIC \"").append(publicId).append('"');
+            if (systemId != null && !systemId.isEmpty()) {
+                out.append(" \"").append(systemId).append('"');
+            }
+        } else if (systemId != null && !systemId.isEmpty()) {
+            out.append(" SYSTEM \"").append(systemId).append('"');
+        }
+        out.append('>');
+    }
+
+    /**
+     * Some emulated browsers also add the doctype to the page as a {@code <!--DOCTYPE ...-->} comment. The doctype was
+     * already written, so that comment is skipped.
+     */
+    private static boolean isDoctypeComment(DomNode node) {
+        return node.getNodeType() == Node.COMMENT_NODE
+                && ((DomCharacterData) node).getData().startsWith("DOCTYPE ");
+    }
+
+    private static void serializeNode(DomNode node, boolean rawText, Appendable out) throws IOException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                serializeElement((DomElement) node, out);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                String text = ((DomCharacterData) node).getData();
+                if (rawText) {
+                    out.append(text);
+                } else {
+                    escape(text, false, out);
+                }
+                break;
+            case Node.COMMENT_NODE:
+                out.append("<!--").append(((DomCharacterData) node).getData()).append("-->");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void serializeElement(DomElement element, Appendable out) throws IOException {
+        String tagName = element.getTagName();
+        if (isDropped(element, tagName)) {
+            return;
+        }
+
+        out.append('<').append(tagName);
+        for (DomAttr attribute : element.getAttributesMap().values()) {
+            out.append(' ').append(attribute.getName()).append("=\"");
+            escape(attribute.getValue(), true, out);
+            out.append('"');
+        }
+        out.append('>');
+
+        if (VOID_ELEMENTS.contains(tagName)) {
+            return;
+        }
+
+        boolean rawText = RAW_TEXT_ELEMENTS.contains(tagName);
+        for (DomNode child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            serializeNode(child, rawText, out);
+        }
+        out.append("</").append(tagName).append('>');
+    }
+
+    private static boolean isDropped(DomElement element, String tagName) {
+        if ("style".equals(tagName)) {
+            return true;
+        } else if ("script".equals(tagName)) {
+            String type = element.getAttribute("type");
+            return !type.endsWith("json");
+        }
+        return false;
+    }
+
+    private static void escape(String value, boolean attribute, Appendable out) throws IOException {
+        int start = 0;
+        int length = value.length();
+
+        for (int i = 0; i < length; ++i) {
+            String replacement;
+            switch (value.charAt(i)) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = attribute ? null : "&lt;";
+                    break;
+                case '>':
+                    replacement = attribute ? null : "&gt;";
+                    break;
+                case '"':
+                    replacement = attribute ? "&quot;" : null;
+                    break;
+                default:
+                    replacement = null;
+                    break;
+            }
+
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, length);
+    }
+}
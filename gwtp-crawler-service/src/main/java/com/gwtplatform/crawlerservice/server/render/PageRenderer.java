@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import com.gargoylesoftware.htmlunit.ScriptResult;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebWindow;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.HtmlUnitTimeoutMillis;
+import com.gwtplatform.crawlerservice.server.render.RenderTimings.Completion;
+
+/**
+ * Renders pages with a pooled HtmlUnit {@link WebClient}.
+ * <p/>
+ * Once the page is loaded, the renderer waits until the page settles instead of waiting for a fixed delay. A page is
+ * settled when either:
+ * <ul>
+ * <li>the application sets the global {@code window.gwtpRenderComplete} to {@code true}. Applications that want to
+ * use this signal should set it to {@code false} on startup, and to {@code true} once the place is revealed;</li>
+ * <li>the application doesn't define {@code window.gwtpRenderComplete} and no javascript job is pending. Ajax calls
+ * are run synchronously, so a pending RPC or REST call shows up as a pending job. Periodic timers, and timers that
+ * would only fire after the timeout, are ignored.</li>
+ * </ul>
+ * If the page doesn't settle within {@link HtmlUnitTimeoutMillis}, it's serialized as is.
+ */
+@Singleton
+public class PageRenderer {
+    private static final String RENDER_COMPLETE_SIGNAL = "window.gwtpRenderComplete";
+    private static final long POLL_MILLIS = 50;
+    private static final int INITIAL_HTML_CAPACITY = 64 * 1024;
+
+    @Inject(optional = true)
+    @HtmlUnitTimeoutMillis
+    private long timeoutMillis = 5000;
+
+    private final WebClientPool webClientPool;
+    private final Logger log;
+    private final MetricsRegistry.Histogram clientWaitMillis;
+    private final MetricsRegistry.Histogram loadMillis;
+    private final MetricsRegistry.Histogram settleMillis;
+    private final MetricsRegistry.Histogram serializeMillis;
+    private final MetricsRegistry.Histogram totalMillis;
+    private final MetricsRegistry.Counter timedOutCount;
+    private final MetricsRegistry.Counter failedCount;
+
+    @Inject
+    PageRenderer(
+            WebClientPool webClientPool,
+            MetricsRegistry metricsRegistry,
+            Logger log) {
+        this.webClientPool = webClientPool;
+        this.log = log;
+
+        clientWaitMillis = metricsRegistry.histogram("render.clientWait.millis");
+        loadMillis = metricsRegistry.histogram("render.load.millis");
+        settleMillis = metricsRegistry.histogram("render.settle.millis");
+        serializeMillis = metricsRegistry.histogram("render.serialize.millis");
+        totalMillis = metricsRegistry.histogram("render.total.millis");
+        timedOutCount = metricsRegistry.counter("render.timedOut");
+        failedCount = metricsRegistry.counter("render.failed");
+    }
+
+    /**
+     * Fetches the page at {@code url}, waits for it to settle and serializes it to HTML.
+     *
+     * @param url The URL of the page to render.
+     * @return The rendered page and the timings of the render.
+     * @throws IOException If the page could not be fetched or the render was interrupted.
+     */
+    public RenderedPage render(String url) throws IOException {
+        RenderTimings timings = new RenderTimings();
+
+        WebClient webClient;
+        try {
+            webClient = webClientPool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a web client.", e);
+        }
+        timings.setWaitForClientNanos(timings.elapsedNanos());
+
+        boolean healthy = false;
+        try {
+            String html = render(webClient, url, timings);
+            healthy = true;
+            return new RenderedPage(html, timings);
+        } finally {
+            webClientPool.release(webClient, healthy);
+            timings.finish();
+            record(timings, healthy);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Rendered " + url + ": " + timings);
+            }
+        }
+    }
+
+    private void record(RenderTimings timings, boolean succeeded) {
+        if (!succeeded) {
+            failedCount.increment(1);
+            return;
+        }
+
+        clientWaitMillis.record(timings.getWaitForClientMillis());
+        loadMillis.record(timings.getLoadMillis());
+        settleMillis.record(timings.getSettleMillis());
+        serializeMillis.record(timings.getSerializeMillis());
+        totalMillis.record(timings.getTotalMillis());
+        if (timings.getCompletion() == Completion.TIMED_OUT) {
+            timedOutCount.increment(1);
+        }
+    }
+
+    private String render(WebClient webClient, String url, RenderTimings timings) throws IOException {
+        long mark = timings.elapsedNanos();
+        WebRequest webRequest = new WebRequest(new URL(url), "text/html");
+        HtmlPage page = webClient.getPage(webRequest);
+
+        long now = timings.elapsedNanos();
+        timings.setLoadNanos(now - mark);
+        mark = now;
+
+        try {
+            timings.setCompletion(awaitSettled(webClient, page));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + url + " to render.", e);
+        }
+
+        now = timings.elapsedNanos();
+        timings.setSettleNanos(now - mark);
+        mark = now;
+
+        StringBuilder html = new StringBuilder(INITIAL_HTML_CAPACITY);
+        HtmlSerializer.serialize(page, html);
+        timings.setSerializeNanos(timings.elapsedNanos() - mark);
+
+        return html.toString();
+    }
+
+    private Completion awaitSettled(WebClient webClient, HtmlPage page) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        while (true) {
+            Boolean signal = getRenderCompleteSignal(page);
+            if (Boolean.TRUE.equals(signal)) {
+                return Completion.SIGNALLED;
+            }
+
+            if (signal == null && !hasJobsDueBefore(webClient, deadline)) {
+                return Completion.QUIESCENT;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return Completion.TIMED_OUT;
+            }
+
+            // Runs the due jobs when HtmlUnit has no background thread, as on App Engine. Otherwise returns at once.
+            int executedJobs = webClient.getJavaScriptEngine().pumpEventLoop(Math.min(POLL_MILLIS, remaining));
+            if (executedJobs == 0) {
+                Thread.sleep(Math.min(POLL_MILLIS, remaining));
+            }
+        }
+    }
+
+    /**
+     * @return The value of the render complete signal, or {@code null} if the application doesn't define it.
+     */
+    private Boolean getRenderCompleteSignal(HtmlPage page) {
+        ScriptResult result = page.executeJavaScript(RENDER_COMPLETE_SIGNAL);
+        if (ScriptResult.isUndefined(result)) {
+            return null;
+        }
+        return Boolean.TRUE.equals(result.getJavaScriptResult());
+    }
+
+    private boolean hasJobsDueBefore(WebClient webClient, long time) {
+        for (WebWindow window : webClient.getWebWindows()) {
+            int dueJobs = window.getJobManager().getJobCount(
+                    job -> !job.isPeriodic() && job.getTargetExecutionTime() < time);
+            if (dueJobs > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
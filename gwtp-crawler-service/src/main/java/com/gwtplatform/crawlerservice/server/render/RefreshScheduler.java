@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.base.Strings;
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.CachedPageTimeoutSec;
+import com.gwtplatform.crawlerservice.server.PrerenderPages;
+import com.gwtplatform.crawlerservice.server.PrerenderSitemap;
+import com.gwtplatform.crawlerservice.server.RefreshAheadSec;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+import com.gwtplatform.crawlerservice.server.service.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.service.FetchLeaseManager;
+
+/**
+ * Keeps cached pages fresh so crawlers rarely wait for a render.
+ * <ul>
+ * <li>Pages requested at least twice since they were last rendered are rendered again {@link RefreshAheadSec} seconds
+ * before they expire.</li>
+ * <li>The pages listed by {@link PrerenderSitemap} and {@link PrerenderPages} are rendered when the scheduler
+ * starts. More pages can be pre-rendered with {@link #prerender(Iterable)}.</li>
+ * </ul>
+ * The {@link WebClientPool} is filled in the background when the scheduler starts, so the first renders don't pay for
+ * creating and configuring clients.
+ * Background renders go through the {@link RenderExecutor} at a lower priority than requested pages. Renders rejected
+ * because the service is busy are retried later.
+ */
+@Singleton
+public class RefreshScheduler {
+    private static final int THREADS = 4;
+    private static final int MIN_HITS = 2;
+    private static final int MAX_TRACKED_PAGES = 10000;
+    private static final long CHECK_INTERVAL_SEC = 30;
+    private static final long RETRY_DELAY_SEC = 5;
+
+    @Inject(optional = true)
+    @CachedPageTimeoutSec
+    private long cachedPageTimeoutSec = 15 * 60;
+
+    @Inject(optional = true)
+    @RefreshAheadSec
+    private long refreshAheadSec = 120;
+
+    @Inject(optional = true)
+    @PrerenderSitemap
+    private String sitemapUrl;
+
+    @Inject(optional = true)
+    @PrerenderPages
+    private String pages;
+
+    private final RenderExecutor renderExecutor;
+    private final WebClientPool webClientPool;
+    private final CachedPageStore cachedPageStore;
+    private final FetchLeaseManager fetchLeaseManager;
+    private final Logger log;
+    private final ConcurrentMap<String, AtomicInteger> accessCounts = new ConcurrentHashMap<>();
+    private final Set<String> scheduledRenders = ConcurrentHashMap.newKeySet();
+    private final AtomicLong refreshedCount = new AtomicLong();
+    private final AtomicLong prerenderedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @Inject
+    RefreshScheduler(
+            RenderExecutor renderExecutor,
+            WebClientPool webClientPool,
+            CachedPageStore cachedPageStore,
+            FetchLeaseManager fetchLeaseManager,
+            MetricsRegistry metricsRegistry,
+            Logger log) {
+        this.renderExecutor = renderExecutor;
+        this.webClientPool = webClientPool;
+        this.cachedPageStore = cachedPageStore;
+        this.fetchLeaseManager = fetchLeaseManager;
+        this.log = log;
+
+        metricsRegistry.gauge("refresh.refreshed", this::getRefreshedCount);
+        metricsRegistry.gauge("refresh.prerendered", this::getPrerenderedCount);
+        metricsRegistry.gauge("refresh.failed", this::getFailedCount);
+        metricsRegistry.gauge("refresh.trackedPages", this::getTrackedPageCount);
+    }
+
+    /**
+     * Pre-warms the web client pool, starts refreshing popular pages and pre-renders the configured pages.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newScheduledThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "CrawlService-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(webClientPool::prewarm);
+        scheduler.scheduleWithFixedDelay(this::refreshExpiringPages, CHECK_INTERVAL_SEC, CHECK_INTERVAL_SEC,
+                TimeUnit.SECONDS);
+
+        if (!Strings.isNullOrEmpty(pages)) {
+            prerender(parsePages(pages));
+        }
+        if (!Strings.isNullOrEmpty(sitemapUrl)) {
+            scheduler.execute(this::prerenderSitemap);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Records a request for the page at {@code url}.
+     */
+    public void recordAccess(String url) {
+        AtomicInteger count = accessCounts.get(url);
+        if (count == null && accessCounts.size() < MAX_TRACKED_PAGES) {
+            count = new AtomicInteger();
+            AtomicInteger existingCount = accessCounts.putIfAbsent(url, count);
+            if (existingCount != null) {
+                count = existingCount;
+            }
+        }
+
+        if (count != null) {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Renders and stores the pages at {@code urls} in the background, unless they are already cached and fresh.
+     */
+    public void prerender(Iterable<String> urls) {
+        for (String url : urls) {
+            scheduleRender(url, RenderPriority.PRERENDER, 0);
+        }
+    }
+
+    /**
+     * @return The number of pages rendered before they expired.
+     */
+    public long getRefreshedCount() {
+        return refreshedCount.get();
+    }
+
+    /**
+     * @return The number of pages rendered ahead of any request.
+     */
+    public long getPrerenderedCount() {
+        return prerenderedCount.get();
+    }
+
+    /**
+     * @return The number of background renders that failed.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return The number of pages for which requests are counted.
+     */
+    public int getTrackedPageCount() {
+        return accessCounts.size();
+    }
+
+    private void refreshExpiringPages() {
+        long refreshBefore = System.currentTimeMillis() + refreshAheadSec * 1000;
+
+        for (Map.Entry<String, AtomicInteger> entry : accessCounts.entrySet()) {
+            String url = entry.getKey();
+            try {
+                CachedPage cachedPage = cachedPageStore.get(url);
+                if (cachedPage == null) {
+                    accessCounts.remove(url, entry.getValue());
+                } else if (!cachedPage.isFetchInProgress()
+                        && cachedPage.getFetchDate().getTime() + cachedPageTimeoutSec * 1000 < refreshBefore) {
+                    if (entry.getValue().get() >= MIN_HITS) {
+                        scheduleRender(url, RenderPriority.REFRESH, 0);
+                    }
+                    // Popularity is counted per rendered version. A page must be requested again to be refreshed again.
+                    accessCounts.remove(url, entry.getValue());
+                }
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Unable to check " + url + " for refresh.", e);
+            }
+        }
+    }
+
+    private void prerenderSitemap() {
+        try {
+            List<String> urls = SitemapReader.read(sitemapUrl);
+            if (log.isLoggable(Level.INFO)) {
+                log.info("Pre-rendering " + urls.size() + " pages from " + sitemapUrl);
+            }
+            prerender(urls);
+        } catch (IOException | XMLStreamException e) {
+            log.log(Level.WARNING, "Unable to read the sitemap at " + sitemapUrl, e);
+        }
+    }
+
+    private void scheduleRender(String url, RenderPriority priority, long delaySec) {
+        ScheduledExecutorService currentScheduler;
+        synchronized (this) {
+            currentScheduler = scheduler;
+        }
+
+        if (currentScheduler != null && (delaySec > 0 || scheduledRenders.add(url))) {
+            currentScheduler.schedule(() -> render(url, priority), delaySec, TimeUnit.SECONDS);
+        }
+    }
+
+    private void render(String url, RenderPriority priority) {
+        FetchLease lease = null;
+        try {
+            if (priority == RenderPriority.PRERENDER && isFresh(cachedPageStore.get(url))) {
+                scheduledRenders.remove(url);
+                return;
+            }
+
+            // Another node, or a request on this one, is already rendering the page.
+            lease = fetchLeaseManager.tryAcquire(url);
+            if (lease == null) {
+                scheduledRenders.remove(url);
+                return;
+            }
+
+            RenderedPage renderedPage = renderExecutor.render(url, priority);
+
+            CachedPage cachedPage = new CachedPage();
+            cachedPage.setUrl(url);
+            cachedPage.setFetchDate(new Date());
+            cachedPage.setFetchInProgress(false);
+            cachedPage.setContent(renderedPage.getHtml());
+            cachedPageStore.save(cachedPage);
+
+            if (priority == RenderPriority.REFRESH) {
+                refreshedCount.incrementAndGet();
+            } else {
+                prerenderedCount.incrementAndGet();
+            }
+            scheduledRenders.remove(url);
+        } catch (RenderRejectedException e) {
+            scheduleRender(url, priority, RETRY_DELAY_SEC);
+        } catch (IOException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            scheduledRenders.remove(url);
+            log.log(Level.WARNING, "Background render of " + url + " failed.", e);
+        } finally {
+            if (lease != null) {
+                fetchLeaseManager.release(lease);
+            }
+        }
+    }
+
+    private boolean isFresh(CachedPage cachedPage) {
+        return cachedPage != null && !cachedPage.isFetchInProgress() && !cachedPage.isExpired(cachedPageTimeoutSec);
+    }
+
+    private List<String> parsePages(String pageList) {
+        List<String> urls = new ArrayList<>();
+        for (String url : pageList.trim().split("\\s+")) {
+            urls.add(url);
+        }
+        return urls;
+    }
+}
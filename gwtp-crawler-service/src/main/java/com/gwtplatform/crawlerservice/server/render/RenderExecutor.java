@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.RenderParallelism;
+import com.gwtplatform.crawlerservice.server.RenderQueueCapacity;
+import com.gwtplatform.crawlerservice.server.RenderTimeoutMillis;
+
+/**
+ * Runs renders on a bounded number of threads so a large crawl can't start an unbounded number of javascript
+ * engines.
+ * <p/>
+ * Renders that can't start right away wait in a queue, ordered by {@link RenderPriority} and then by arrival. The
+ * queue holds at most {@link RenderQueueCapacity} renders. Once it's half full, {@link RenderPriority#REFRESH
+ * refresh} renders are rejected so first renders keep a chance to be admitted. Once it's a quarter full,
+ * {@link RenderPriority#PRERENDER pre-renders} are rejected.
+ * <p/>
+ * Callers wait at most {@link RenderTimeoutMillis} for their render. A render that takes longer is cancelled and
+ * reported as rejected, so the caller can answer with a retry instead of holding its thread.
+ */
+@Singleton
+public class RenderExecutor {
+    private class RenderTask extends FutureTask<RenderedPage> implements Comparable<RenderTask> {
+        private final RenderPriority priority;
+        private final long sequence;
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        RenderTask(Callable<RenderedPage> render, RenderPriority priority, long sequence) {
+            super(render);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (dequeue()) {
+                started(this);
+            }
+            super.run();
+        }
+
+        /**
+         * @return {@code true} if this call took the task out of the queue, {@code false} if it already left it.
+         */
+        boolean dequeue() {
+            if (dequeued.compareAndSet(false, true)) {
+                queueDepth.decrementAndGet();
+                laneDepths[priority.ordinal()].decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(RenderTask other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    @Inject(optional = true)
+    @RenderParallelism
+    private int parallelism = 4;
+
+    @Inject(optional = true)
+    @RenderQueueCapacity
+    private int queueCapacity = 32;
+
+    @Inject(optional = true)
+    @RenderTimeoutMillis
+    private long timeoutMillis = 30000;
+
+    private final PageRenderer pageRenderer;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger[] laneDepths = new AtomicInteger[RenderPriority.values().length];
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final MetricsRegistry.Histogram queueWaitMillis;
+    private final MetricsRegistry.Counter rejectedCounter;
+    private final MetricsRegistry.Counter abandonedCounter;
+
+    private ThreadPoolExecutor executor;
+
+    @Inject
+    RenderExecutor(
+            PageRenderer pageRenderer,
+            MetricsRegistry metricsRegistry) {
+        this.pageRenderer = pageRenderer;
+
+        queueWaitMillis = metricsRegistry.histogram("render.queueWait.millis");
+        rejectedCounter = metricsRegistry.counter("render.rejected");
+        abandonedCounter = metricsRegistry.counter("render.abandoned");
+        metricsRegistry.gauge("render.queueDepth", this::getQueueDepth);
+        metricsRegistry.gauge("render.active", this::getActiveCount);
+
+        for (int i = 0; i < laneDepths.length; ++i) {
+            laneDepths[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Renders the page at {@code url} on a render thread and waits for the result. If the render doesn't complete
+     * within {@link RenderTimeoutMillis}, it's cancelled.
+     *
+     * @param url      The URL of the page to render.
+     * @param priority The lane in which the render waits if no render thread is available.
+     * @return The rendered page.
+     * @throws RenderRejectedException If the queue for {@code priority} is full or the render timed out.
+     * @throws IOException             If the render failed or the caller was interrupted.
+     */
+    public RenderedPage render(String url, RenderPriority priority) throws RenderRejectedException, IOException {
+        RenderTask task = submit(url, priority);
+        try {
+            return task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(task);
+            abandonedCounter.increment(1);
+            throw new RenderRejectedException("Timed out while waiting for " + url + " to render.");
+        } catch (InterruptedException e) {
+            cancel(task);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + url + " to render.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to render " + url + ".", cause);
+        }
+    }
+
+    /**
+     * Stops the render threads. Renders in progress are interrupted and queued renders are cancelled.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            for (Runnable task : executor.shutdownNow()) {
+                ((RenderTask) task).cancel(false);
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * @return The number of renders waiting for a render thread.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return The number of renders waiting for a render thread in the {@code priority} lane.
+     */
+    public int getQueueDepth(RenderPriority priority) {
+        return laneDepths[priority.ordinal()].get();
+    }
+
+    /**
+     * @return The number of renders currently running.
+     */
+    public synchronized int getActiveCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    /**
+     * @return The number of renders started since startup.
+     */
+    public long getStartedCount() {
+        return startedCount.get();
+    }
+
+    /**
+     * @return The number of renders rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The average time, in milliseconds, renders waited in the queue.
+     */
+    public long getAverageWaitMillis() {
+        long started = startedCount.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / started);
+    }
+
+    /**
+     * @return The longest time, in milliseconds, a render waited in the queue.
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    private RenderTask submit(String url, RenderPriority priority) throws RenderRejectedException {
+        if (queueDepth.incrementAndGet() > getCapacity(priority)) {
+            queueDepth.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            rejectedCounter.increment(1);
+            throw new RenderRejectedException("Too many renders in progress to render " + url + ".");
+        }
+        laneDepths[priority.ordinal()].incrementAndGet();
+
+        RenderTask task = new RenderTask(() -> pageRenderer.render(url), priority, sequence.getAndIncrement());
+        getExecutor().execute(task);
+        return task;
+    }
+
+    private void cancel(RenderTask task) {
+        task.cancel(true);
+
+        if (task.dequeue()) {
+            synchronized (this) {
+                if (executor != null) {
+                    executor.remove(task);
+                }
+            }
+        }
+    }
+
+    private int getCapacity(RenderPriority priority) {
+        switch (priority) {
+            case FIRST_RENDER:
+                return queueCapacity;
+            case REFRESH:
+                return queueCapacity / 2;
+            default:
+                return queueCapacity / 4;
+        }
+    }
+
+    private void started(RenderTask task) {
+        long waitNanos = System.nanoTime() - task.queuedAt;
+        startedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        queueWaitMillis.record(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    private Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "CrawlService-render");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), this::newThread);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+/**
+ * Priority lanes of the {@link RenderExecutor}, from the most to the least urgent.
+ */
+public enum RenderPriority {
+    /**
+     * A page requested for the first time. A crawler is waiting for it.
+     */
+    FIRST_RENDER,
+    /**
+     * A page being rendered again because it expired, or is about to.
+     */
+    REFRESH,
+    /**
+     * A page rendered ahead of any request, from a sitemap or a list of pages. These renders are shed first when the
+     * service is overloaded.
+     */
+    PRERENDER
+}
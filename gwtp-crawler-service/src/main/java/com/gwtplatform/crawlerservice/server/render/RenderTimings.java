@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+/**
+ * Time spent in each phase of a render.
+ */
+public class RenderTimings {
+    /**
+     * How the wait for the page to be rendered ended.
+     */
+    public enum Completion {
+        /**
+         * No javascript job was pending.
+         */
+        QUIESCENT,
+        /**
+         * The application signalled it finished rendering.
+         */
+        SIGNALLED,
+        /**
+         * The page was still busy when the render timeout elapsed.
+         */
+        TIMED_OUT
+    }
+
+    private final long start = System.nanoTime();
+
+    private long waitForClientNanos;
+    private long loadNanos;
+    private long settleNanos;
+    private long serializeNanos;
+    private long totalNanos;
+    private Completion completion;
+
+    /**
+     * @return The time spent waiting for a pooled web client.
+     */
+    public long getWaitForClientMillis() {
+        return toMillis(waitForClientNanos);
+    }
+
+    /**
+     * @return The time spent fetching the page and running its inline scripts.
+     */
+    public long getLoadMillis() {
+        return toMillis(loadNanos);
+    }
+
+    /**
+     * @return The time spent waiting for the page to settle.
+     */
+    public long getSettleMillis() {
+        return toMillis(settleNanos);
+    }
+
+    /**
+     * @return The time spent serializing the page to HTML.
+     */
+    public long getSerializeMillis() {
+        return toMillis(serializeNanos);
+    }
+
+    /**
+     * @return The total time of the render.
+     */
+    public long getTotalMillis() {
+        return toMillis(totalNanos);
+    }
+
+    /**
+     * @return How the wait for the page to settle ended, or {@code null} if the page failed to load.
+     */
+    public Completion getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return The timings formatted as the value of a {@code Server-Timing} header.
+     */
+    public String toServerTiming() {
+        return "client;dur=" + getWaitForClientMillis()
+                + ", load;dur=" + getLoadMillis()
+                + ", settle;dur=" + getSettleMillis()
+                + ", serialize;dur=" + getSerializeMillis()
+                + ", total;dur=" + getTotalMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "RenderTimings{"
+                + "client=" + getWaitForClientMillis()
+                + "ms, load=" + getLoadMillis()
+                + "ms, settle=" + getSettleMillis()
+                + "ms, serialize=" + getSerializeMillis()
+                + "ms, total=" + getTotalMillis()
+                + "ms, completion=" + completion
+                + "}";
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    void setWaitForClientNanos(long waitForClientNanos) {
+        this.waitForClientNanos = waitForClientNanos;
+    }
+
+    void setLoadNanos(long loadNanos) {
+        this.loadNanos = loadNanos;
+    }
+
+    void setSettleNanos(long settleNanos) {
+        this.settleNanos = settleNanos;
+    }
+
+    void setSerializeNanos(long serializeNanos) {
+        this.serializeNanos = serializeNanos;
+    }
+
+    void setCompletion(Completion completion) {
+        this.completion = completion;
+    }
+
+    void finish() {
+        totalNanos = elapsedNanos();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import javax.inject.Singleton;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebConnection;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gargoylesoftware.htmlunit.util.WebConnectionWrapper;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.AllowedResources;
+import com.gwtplatform.crawlerservice.server.BlockedResources;
+import com.gwtplatform.crawlerservice.server.StaticResourceBase;
+import com.gwtplatform.crawlerservice.server.StaticResourceDirectory;
+
+/**
+ * Intercepts the requests HtmlUnit sends while rendering a page.
+ * <ul>
+ * <li>Requests matching {@link BlockedResources}, and not {@link AllowedResources}, get an empty response without
+ * reaching the network.</li>
+ * <li>Resources under {@link StaticResourceBase} are read from the {@link StaticResourceDirectory} when it holds
+ * them.</li>
+ * <li>GWT strong-named artifacts, such as {@code *.cache.js}, never change. Once fetched, they are kept in memory and
+ * shared by all clients.</li>
+ * </ul>
+ */
+@Singleton
+public class ResourceInterceptor {
+    private static class CachedResource {
+        private final byte[] body;
+        private final List<NameValuePair> headers;
+
+        CachedResource(byte[] body, List<NameValuePair> headers) {
+            this.body = body;
+            this.headers = headers;
+        }
+
+        WebResponse toResponse(WebRequest request, long loadTimeMillis) {
+            return new WebResponse(new WebResponseData(body, 200, "OK", headers), request, loadTimeMillis);
+        }
+    }
+
+    private class InterceptingWebConnection extends WebConnectionWrapper {
+        InterceptingWebConnection(WebClient webClient) {
+            super(webClient);
+        }
+
+        @Override
+        public WebResponse getResponse(WebRequest request) throws IOException {
+            return intercept(request, getWrappedWebConnection());
+        }
+    }
+
+    private static final String DEFAULT_BLOCKED_RESOURCES =
+            "(?i)[^?#]*\\.(png|jpe?g|gif|webp|svg|ico|bmp|woff2?|ttf|otf|eot|mp3|mp4|ogg|webm)([?#].*)?"
+            + " (?i)https?://([^/]*\\.)?(google-analytics|googletagmanager|doubleclick|facebook)\\.(com|net)/.*";
+    private static final String IMMUTABLE_MARKER = ".cache.";
+    private static final int MAX_CACHED_RESOURCES = 256;
+
+    @Inject(optional = true)
+    @BlockedResources
+    private String blockedResources = DEFAULT_BLOCKED_RESOURCES;
+
+    @Inject(optional = true)
+    @AllowedResources
+    private String allowedResources;
+
+    @Inject(optional = true)
+    @StaticResourceBase
+    private String staticResourceBase;
+
+    @Inject(optional = true)
+    @StaticResourceDirectory
+    private String staticResourceDirectory;
+
+    private final ConcurrentMap<String, CachedResource> cachedResources = new ConcurrentHashMap<>();
+    private final MetricsRegistry.Counter blockedCount;
+    private final MetricsRegistry.Counter memoryCount;
+    private final MetricsRegistry.Counter localCount;
+    private final MetricsRegistry.Counter remoteCount;
+
+    private volatile List<Pattern> blockedPatterns;
+    private volatile List<Pattern> allowedPatterns;
+
+    @Inject
+    ResourceInterceptor(MetricsRegistry metricsRegistry) {
+        blockedCount = metricsRegistry.counter("resources.blocked");
+        memoryCount = metricsRegistry.counter("resources.memory");
+        localCount = metricsRegistry.counter("resources.local");
+        remoteCount = metricsRegistry.counter("resources.remote");
+        metricsRegistry.gauge("resources.cached", cachedResources::size);
+    }
+
+    /**
+     * Routes the requests of {@code webClient} through this interceptor.
+     */
+    public void install(WebClient webClient) {
+        new InterceptingWebConnection(webClient);
+    }
+
+    /**
+     * @param url The URL of the resource.
+     * @return {@code true} if HtmlUnit must not fetch {@code url}.
+     */
+    public boolean isBlocked(String url) {
+        if (blockedPatterns == null) {
+            blockedPatterns = compile(blockedResources);
+            allowedPatterns = compile(allowedResources);
+        }
+        return matchesAny(blockedPatterns, url) && !matchesAny(allowedPatterns, url);
+    }
+
+    WebResponse intercept(WebRequest request, WebConnection connection) throws IOException {
+        long start = System.currentTimeMillis();
+        String url = request.getUrl().toExternalForm();
+
+        if (isBlocked(url)) {
+            blockedCount.increment(1);
+            // An empty 200 rather than a 204, so HtmlUnit runs blocked scripts as empty scripts instead of failing.
+            WebResponseData empty = new WebResponseData(new byte[0], 200, "OK", Collections.<NameValuePair>emptyList());
+            return new WebResponse(empty, request, 0);
+        }
+
+        if (request.getHttpMethod() != HttpMethod.GET) {
+            remoteCount.increment(1);
+            return connection.getResponse(request);
+        }
+
+        String resourceUrl = stripQueryAndFragment(url);
+        boolean immutable = resourceUrl.contains(IMMUTABLE_MARKER);
+        CachedResource resource = cachedResources.get(resourceUrl);
+        if (resource != null) {
+            memoryCount.increment(1);
+            return resource.toResponse(request, System.currentTimeMillis() - start);
+        }
+
+        resource = readLocalResource(resourceUrl);
+        if (resource != null) {
+            localCount.increment(1);
+            if (immutable) {
+                cache(resourceUrl, resource);
+            }
+            return resource.toResponse(request, System.currentTimeMillis() - start);
+        }
+
+        remoteCount.increment(1);
+        WebResponse response = connection.getResponse(request);
+        if (immutable && response.getStatusCode() == 200) {
+            // HtmlUnit has already decoded the content, so the headers describing the encoded body are dropped.
+            try (InputStream content = response.getContentAsStream()) {
+                cache(resourceUrl, new CachedResource(ByteStreams.toByteArray(content),
+                        getDecodedHeaders(response.getResponseHeaders())));
+            }
+        }
+        return response;
+    }
+
+    private CachedResource readLocalResource(String resourceUrl) throws IOException {
+        if (Strings.isNullOrEmpty(staticResourceBase) || Strings.isNullOrEmpty(staticResourceDirectory)
+                || !resourceUrl.startsWith(staticResourceBase)) {
+            return null;
+        }
+
+        Path directory = Paths.get(staticResourceDirectory).toAbsolutePath().normalize();
+        Path file = directory.resolve(resourceUrl.substring(staticResourceBase.length())).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            return null;
+        }
+
+        List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Content-Type", getContentType(file.getFileName().toString())));
+        return new CachedResource(Files.readAllBytes(file), headers);
+    }
+
+    private static List<NameValuePair> getDecodedHeaders(List<NameValuePair> headers) {
+        List<NameValuePair> decodedHeaders = new ArrayList<>(headers.size());
+        for (NameValuePair header : headers) {
+            if (!"Content-Encoding".equalsIgnoreCase(header.getName())
+                    && !"Content-Length".equalsIgnoreCase(header.getName())) {
+                decodedHeaders.add(header);
+            }
+        }
+        return decodedHeaders;
+    }
+
+    private void cache(String resourceUrl, CachedResource resource) {
+        if (cachedResources.size() < MAX_CACHED_RESOURCES) {
+            cachedResources.putIfAbsent(resourceUrl, resource);
+        }
+    }
+
+    private static String stripQueryAndFragment(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query != -1) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment != -1 && fragment < end) {
+            end = fragment;
+        }
+        return url.substring(0, end);
+    }
+
+    private static String getContentType(String fileName) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        switch (extension) {
+            case "js":
+                return "application/javascript";
+            case "html":
+            case "htm":
+                return "text/html";
+            case "css":
+                return "text/css";
+            case "json":
+                return "application/json";
+            case "xml":
+                return "application/xml";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static List<Pattern> compile(String patterns) {
+        List<Pattern> compiled = new ArrayList<>();
+        if (!Strings.isNullOrEmpty(patterns)) {
+            for (String pattern : patterns.trim().split("\\s+")) {
+                compiled.add(Pattern.compile(pattern));
+            }
+        }
+        return compiled;
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String url) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
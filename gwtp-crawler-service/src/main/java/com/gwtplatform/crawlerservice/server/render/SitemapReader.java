@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the page URLs listed in a sitemap. Sitemap indexes are followed one level deep. DTDs are not processed.
+ */
+final class SitemapReader {
+    private SitemapReader() {
+    }
+
+    /**
+     * @param url The URL of the sitemap or sitemap index.
+     * @return The page URLs, in the order they are listed.
+     */
+    static List<String> read(String url) throws IOException, XMLStreamException {
+        List<String> urls = new ArrayList<>();
+        read(url, urls, true);
+        return urls;
+    }
+
+    private static void read(String url, List<String> urls, boolean followIndex)
+            throws IOException, XMLStreamException {
+        List<String> sitemaps = new ArrayList<>();
+
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        try (InputStream in = new URL(url).openStream()) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                boolean index = false;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    String element = reader.getLocalName();
+                    if ("sitemapindex".equals(element)) {
+                        index = true;
+                    } else if ("loc".equals(element) && index) {
+                        sitemaps.add(reader.getElementText().trim());
+                    } else if ("loc".equals(element)) {
+                        urls.add(reader.getElementText().trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        if (followIndex) {
+            for (String sitemap : sitemaps) {
+                read(sitemap, urls, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import com.gargoylesoftware.htmlunit.Cache;
+import com.gargoylesoftware.htmlunit.NicelyResynchronizingAjaxController;
+import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.SharedHtmlUnitCache;
+import com.gwtplatform.crawlerservice.server.WebClientMaxUses;
+import com.gwtplatform.crawlerservice.server.WebClientPoolSize;
+
+/**
+ * Bounded pool of configured {@link WebClient}s used to render pages. Clients are created and configured once, then
+ * reused across renders. A client is closed and replaced after {@link WebClientMaxUses} renders, or as soon as a
+ * render fails with it. A client that can't be created doesn't take a slot in the pool, so a failing configuration
+ * fails renders rather than blocking them.
+ * <p/>
+ * By default, all clients share a single HtmlUnit {@link Cache}, so the GWT permutation scripts are downloaded and
+ * compiled once instead of once per client. The requests of all clients go through the {@link ResourceInterceptor}.
+ */
+@Singleton
+public class WebClientPool {
+    private static class SyncAllAjaxController extends NicelyResynchronizingAjaxController {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean processSynchron(HtmlPage page, WebRequest request, boolean async) {
+            return true;
+        }
+    }
+
+    /**
+     * How often a render waiting for a client checks whether it may create one, in case a slot was freed without a
+     * client being released.
+     */
+    private static final long RECHECK_MILLIS = 1000;
+
+    @Inject(optional = true)
+    @WebClientPoolSize
+    private int poolSize = 4;
+
+    @Inject(optional = true)
+    @WebClientMaxUses
+    private int maxUses = 50;
+
+    @Inject(optional = true)
+    @SharedHtmlUnitCache
+    private boolean sharedCache = true;
+
+    private final Provider<WebClient> webClientProvider;
+    private final ResourceInterceptor resourceInterceptor;
+    private final Logger log;
+    private final Cache cache = new Cache();
+    private final LinkedBlockingDeque<WebClient> idleClients = new LinkedBlockingDeque<>();
+    private final Map<WebClient, Integer> uses = new IdentityHashMap<>();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong recycledCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private int size;
+
+    @Inject
+    WebClientPool(
+            Provider<WebClient> webClientProvider,
+            ResourceInterceptor resourceInterceptor,
+            MetricsRegistry metricsRegistry,
+            Logger log) {
+        this.webClientProvider = webClientProvider;
+        this.resourceInterceptor = resourceInterceptor;
+        this.log = log;
+
+        metricsRegistry.gauge("webClients.idle", this::getIdleCount);
+        metricsRegistry.gauge("webClients.inUse", this::getInUseCount);
+        metricsRegistry.gauge("webClients.created", this::getCreatedCount);
+        metricsRegistry.gauge("webClients.recycled", this::getRecycledCount);
+        metricsRegistry.gauge("webClients.wait.millis", this::getWaitMillis);
+    }
+
+    /**
+     * Creates and configures the clients of the pool ahead of the first render. Calling this method is optional, the
+     * pool otherwise grows on demand.
+     */
+    public void prewarm() {
+        while (reserveSlot()) {
+            try {
+                idleClients.offer(createClientInSlot());
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to pre-warm HtmlUnit web clients", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Borrows a client from the pool, waiting for one to be released if all clients are in use. The client
+     * <b>must</b> be returned with {@link #release(WebClient, boolean)}.
+     *
+     * @return A configured client.
+     * @throws InterruptedException If interrupted while waiting for a client.
+     */
+    public WebClient borrow() throws InterruptedException {
+        long waitStart = 0;
+        while (true) {
+            WebClient webClient = idleClients.poll();
+            if (webClient == null && reserveSlot()) {
+                webClient = createClientInSlot();
+            }
+            if (webClient == null) {
+                if (waitStart == 0) {
+                    waitStart = System.nanoTime();
+                }
+                webClient = idleClients.poll(RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            if (webClient != null) {
+                if (waitStart != 0) {
+                    waitNanos.addAndGet(System.nanoTime() - waitStart);
+                }
+                return webClient;
+            }
+        }
+    }
+
+    /**
+     * Returns a client to the pool.
+     *
+     * @param webClient The client obtained from {@link #borrow()}.
+     * @param healthy   {@code false} if the render failed, in which case the client is replaced.
+     */
+    public void release(WebClient webClient, boolean healthy) {
+        webClient.closeAllWindows();
+
+        boolean recycle;
+        synchronized (uses) {
+            int count = uses.get(webClient) + 1;
+            recycle = !healthy || count >= maxUses;
+            if (recycle) {
+                uses.remove(webClient);
+            } else {
+                uses.put(webClient, count);
+            }
+        }
+
+        if (recycle) {
+            recycledCount.incrementAndGet();
+            log.log(Level.FINE, "Recycling HtmlUnit web client, healthy: {0}", healthy);
+            try {
+                webClient.close();
+            } finally {
+                freeSlot();
+            }
+            replace();
+        } else {
+            idleClients.offer(webClient);
+        }
+    }
+
+    /**
+     * @return The number of clients currently waiting for a render.
+     */
+    public int getIdleCount() {
+        return idleClients.size();
+    }
+
+    /**
+     * @return The number of clients currently rendering a page.
+     */
+    public int getInUseCount() {
+        synchronized (uses) {
+            return size - idleClients.size();
+        }
+    }
+
+    /**
+     * @return The number of clients created since startup, including replacements.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * @return The number of clients closed because they failed or reached their maximum number of uses.
+     */
+    public long getRecycledCount() {
+        return recycledCount.get();
+    }
+
+    /**
+     * @return The total time, in milliseconds, spent by renders waiting for a client.
+     */
+    public long getWaitMillis() {
+        return waitNanos.get() / 1000000;
+    }
+
+    private boolean reserveSlot() {
+        synchronized (uses) {
+            if (size < poolSize) {
+                ++size;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void freeSlot() {
+        synchronized (uses) {
+            --size;
+        }
+    }
+
+    /**
+     * Creates a client in a slot already reserved, freeing the slot if the client can't be created.
+     */
+    private WebClient createClientInSlot() {
+        try {
+            return createClient();
+        } catch (RuntimeException | Error e) {
+            freeSlot();
+            throw e;
+        }
+    }
+
+    private void replace() {
+        if (reserveSlot()) {
+            try {
+                idleClients.offer(createClientInSlot());
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to replace a recycled HtmlUnit web client", e);
+            }
+        }
+    }
+
+    private WebClient createClient() {
+        WebClient webClient = webClientProvider.get();
+
+        try {
+            webClient.getOptions().setCssEnabled(false);
+            webClient.getOptions().setJavaScriptEnabled(true);
+            webClient.getOptions().setThrowExceptionOnScriptError(false);
+            webClient.getOptions().setRedirectEnabled(true);
+            webClient.getOptions().setThrowExceptionOnFailingStatusCode(false);
+            webClient.setAjaxController(new SyncAllAjaxController());
+            webClient.setCssErrorHandler(new SilentCssErrorHandler());
+            if (sharedCache) {
+                webClient.setCache(cache);
+            }
+            resourceInterceptor.install(webClient);
+        } catch (RuntimeException e) {
+            webClient.close();
+            throw e;
+        }
+
+        synchronized (uses) {
+            uses.put(webClient, 0);
+        }
+        createdCount.incrementAndGet();
+        return webClient;
+    }
+}
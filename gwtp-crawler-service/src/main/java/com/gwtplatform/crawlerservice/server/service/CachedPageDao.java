@@ -16,13 +16,24 @@
 
 package com.gwtplatform.crawlerservice.server.service;
 
+import com.googlecode.objectify.Key;
 import com.gwtplatform.crawlerservice.server.domain.CachedPage;
 
 /**
- * The DAO for a {@link CachedPage}.
+ * The DAO for a {@link CachedPage}. Stores pages in the App Engine datastore.
  */
-public class CachedPageDao extends ObjectifyDao<CachedPage> {
+public class CachedPageDao extends ObjectifyDao<CachedPage> implements CachedPageStore {
     public CachedPageDao() {
         super(CachedPage.class);
     }
+
+    @Override
+    public CachedPage get(String url) {
+        return get(Key.create(CachedPage.class, url));
+    }
+
+    @Override
+    public void save(CachedPage cachedPage) {
+        put(cachedPage);
+    }
 }
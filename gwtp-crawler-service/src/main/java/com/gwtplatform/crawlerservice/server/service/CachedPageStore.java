@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import com.google.inject.ImplementedBy;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+/**
+ * Storage for the pages rendered by the crawl service. The default implementation, {@link CachedPageDao}, stores
+ * pages in the App Engine datastore. To run the service outside of App Engine, bind another implementation in your
+ * module. For example:
+ * <pre>{@literal @}Provides
+ * {@literal @}Singleton
+ * CachedPageStore getCachedPageStore() throws IOException {
+ *     return new MappedFileCachedPageStore(Paths.get("/var/cache/crawl"), 64 * 1024 * 1024, 16);
+ * }
+ * </pre>
+ */
+@ImplementedBy(CachedPageDao.class)
+public interface CachedPageStore {
+    /**
+     * @param url The URL of the page.
+     * @return The stored page, or {@code null} if no page is stored for {@code url}.
+     */
+    CachedPage get(String url);
+
+    /**
+     * Stores a page, replacing any page with the same URL.
+     */
+    void save(CachedPage cachedPage);
+
+    /**
+     * Removes a page.
+     */
+    void delete(CachedPage cachedPage);
+}
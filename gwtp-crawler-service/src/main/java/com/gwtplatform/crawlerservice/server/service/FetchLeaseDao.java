@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import java.util.Objects;
+
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.Objectify;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+import com.gwtplatform.crawlerservice.server.objectify.OfyService;
+
+/**
+ * Stores {@link FetchLease}s in the datastore. Leases are read and replaced within transactions, so the session cache
+ * never hides a lease written by another node.
+ */
+public class FetchLeaseDao extends ObjectifyDao<FetchLease> implements FetchLeaseStore {
+    public FetchLeaseDao() {
+        super(FetchLease.class);
+    }
+
+    @Override
+    public FetchLease get(String url) {
+        Key<FetchLease> key = Key.create(FetchLease.class, url);
+        return ofy().transact(() -> OfyService.ofy().load().key(key).now());
+    }
+
+    @Override
+    public boolean compareAndSet(String url, FetchLease expected, FetchLease replacement) {
+        Key<FetchLease> key = Key.create(FetchLease.class, url);
+        return ofy().transact(() -> {
+            Objectify transaction = OfyService.ofy();
+            FetchLease current = transaction.load().key(key).now();
+            if (!Objects.equals(current, expected)) {
+                return false;
+            }
+
+            if (replacement != null) {
+                transaction.save().entity(replacement).now();
+            } else if (current != null) {
+                transaction.delete().key(key).now();
+            }
+            return true;
+        });
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawlerservice.server.FetchLeaseSec;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+
+/**
+ * Makes sure a page is rendered by a single crawl service node at a time. A node must acquire the {@link FetchLease}
+ * of a page before rendering it, and release it once the page is stored. A lease that isn't released before it expires
+ * is considered abandoned and can be taken over by another node.
+ * <p/>
+ * Renders can wait in the render queue and take a while to complete, so the leases this node holds are renewed in the
+ * background every third of {@link FetchLeaseSec} until they're released. A lease only expires if its node stops.
+ */
+@Singleton
+public class FetchLeaseManager {
+    @Inject(optional = true)
+    @FetchLeaseSec
+    private long leaseSec = 60;
+
+    private final FetchLeaseStore fetchLeaseStore;
+    private final String ownerId;
+    private final ConcurrentMap<String, FetchLease> heldLeases = new ConcurrentHashMap<>();
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong takenOverCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong conflictCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+    private final AtomicLong renewedCount = new AtomicLong();
+
+    private ScheduledExecutorService renewer;
+
+    @Inject
+    FetchLeaseManager(
+            FetchLeaseStore fetchLeaseStore,
+            MetricsRegistry metricsRegistry) {
+        this.fetchLeaseStore = fetchLeaseStore;
+        this.ownerId = getHostName() + "-" + UUID.randomUUID();
+
+        metricsRegistry.gauge("lease.acquired", this::getAcquiredCount);
+        metricsRegistry.gauge("lease.takenOver", this::getTakenOverCount);
+        metricsRegistry.gauge("lease.contended", this::getContendedCount);
+        metricsRegistry.gauge("lease.conflicts", this::getConflictCount);
+        metricsRegistry.gauge("lease.lost", this::getLostCount);
+        metricsRegistry.gauge("lease.renewed", this::getRenewedCount);
+    }
+
+    /**
+     * Tries to acquire the lease of the page at {@code url}. The lease is renewed until it's {@link
+     * #release(FetchLease) released}.
+     *
+     * @param url The URL of the page.
+     * @return The acquired lease, or {@code null} if another render holds it.
+     */
+    public FetchLease tryAcquire(String url) {
+        long now = System.currentTimeMillis();
+        FetchLease current = fetchLeaseStore.get(url);
+        if (current != null && !current.isExpired(now)) {
+            contendedCount.incrementAndGet();
+            return null;
+        }
+
+        FetchLease lease = new FetchLease(url, ownerId, now + leaseSec * 1000);
+        if (!fetchLeaseStore.compareAndSet(url, current, lease)) {
+            conflictCount.incrementAndGet();
+            contendedCount.incrementAndGet();
+            return null;
+        }
+
+        if (current == null) {
+            acquiredCount.incrementAndGet();
+        } else {
+            takenOverCount.incrementAndGet();
+        }
+
+        heldLeases.put(url, lease);
+        startRenewer();
+        return lease;
+    }
+
+    /**
+     * Releases a lease obtained from {@link #tryAcquire(String)}, including its renewals. Does nothing if the lease
+     * expired and was taken over.
+     */
+    public void release(FetchLease lease) {
+        String url = lease.getUrl();
+        heldLeases.remove(url);
+
+        // The renewer may replace the lease while it's released, so retry until no lease of this node is left.
+        while (true) {
+            FetchLease current = fetchLeaseStore.get(url);
+            if (current == null || !ownerId.equals(current.getOwnerId())) {
+                lostCount.incrementAndGet();
+                return;
+            }
+            if (fetchLeaseStore.compareAndSet(url, current, null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops renewing the leases held by this node.
+     */
+    public synchronized void shutdown() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+            renewer = null;
+        }
+    }
+
+    /**
+     * @param url The URL of the page.
+     * @return {@code true} if a render currently holds the lease of the page at {@code url}.
+     */
+    public boolean isHeld(String url) {
+        FetchLease current = fetchLeaseStore.get(url);
+        return current != null && !current.isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * @return The identifier of this node in the leases it holds.
+     */
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * @return The number of leases acquired on pages no other render held.
+     */
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    /**
+     * @return The number of leases acquired by replacing an expired lease.
+     */
+    public long getTakenOverCount() {
+        return takenOverCount.get();
+    }
+
+    /**
+     * @return The number of attempts to acquire a lease held by another render, including lost races.
+     */
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    /**
+     * @return The number of attempts to acquire a lease that lost a race against another render.
+     */
+    public long getConflictCount() {
+        return conflictCount.get();
+    }
+
+    /**
+     * @return The number of leases that expired and were taken over before being released.
+     */
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    /**
+     * @return The number of times a held lease was renewed.
+     */
+    public long getRenewedCount() {
+        return renewedCount.get();
+    }
+
+    /**
+     * Extends the leases held by this node by {@link FetchLeaseSec}. Leases that were taken over are no longer renewed.
+     */
+    void renewHeldLeases() {
+        long expiresAt = System.currentTimeMillis() + leaseSec * 1000;
+
+        for (FetchLease lease : heldLeases.values()) {
+            String url = lease.getUrl();
+            FetchLease renewed = new FetchLease(url, ownerId, expiresAt);
+            try {
+                if (fetchLeaseStore.compareAndSet(url, lease, renewed)) {
+                    heldLeases.replace(url, lease, renewed);
+                    renewedCount.incrementAndGet();
+                } else {
+                    heldLeases.remove(url, lease);
+                }
+            } catch (RuntimeException e) {
+                // The store is unavailable, the lease is renewed on the next run.
+            }
+        }
+    }
+
+    private synchronized void startRenewer() {
+        if (renewer != null) {
+            return;
+        }
+
+        long intervalMillis = Math.max(leaseSec * 1000 / 3, 1);
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CrawlService-leases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(this::renewHeldLeases, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
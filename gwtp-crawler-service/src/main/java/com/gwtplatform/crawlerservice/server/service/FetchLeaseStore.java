@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import com.google.inject.ImplementedBy;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+
+/**
+ * Storage for {@link FetchLease}s. Implementations must be shared by all the nodes rendering into the same
+ * {@link CachedPageStore} and must apply {@link #compareAndSet(String, FetchLease, FetchLease)} atomically.
+ * <p/>
+ * The default implementation, {@link FetchLeaseDao}, stores leases in the datastore. Single node deployments can bind
+ * {@link LocalFetchLeaseStore} instead.
+ */
+@ImplementedBy(FetchLeaseDao.class)
+public interface FetchLeaseStore {
+    /**
+     * @param url The URL of the page.
+     * @return The lease stored for {@code url}, expired or not, or {@code null} if there is none.
+     */
+    FetchLease get(String url);
+
+    /**
+     * Replaces the lease stored for {@code url} if it is equal to {@code expected}.
+     *
+     * @param url         The URL of the page.
+     * @param expected    The lease expected to be stored, {@code null} if none is expected.
+     * @param replacement The new lease, {@code null} to remove the stored lease.
+     * @return {@code true} if the lease was replaced, {@code false} if the stored lease didn't match {@code expected}.
+     */
+    boolean compareAndSet(String url, FetchLease expected, FetchLease replacement);
+}
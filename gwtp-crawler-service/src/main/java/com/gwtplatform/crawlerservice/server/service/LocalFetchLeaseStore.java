@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Singleton;
+
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+
+/**
+ * Keeps {@link FetchLease}s in memory. Only suitable when a single crawl service node renders into the page store,
+ * for example along with {@link MappedFileCachedPageStore}, or for tests.
+ */
+@Singleton
+public class LocalFetchLeaseStore implements FetchLeaseStore {
+    private final ConcurrentMap<String, FetchLease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    public FetchLease get(String url) {
+        return leases.get(url);
+    }
+
+    @Override
+    public boolean compareAndSet(String url, FetchLease expected, FetchLease replacement) {
+        if (expected == null) {
+            return replacement == null ? !leases.containsKey(url) : leases.putIfAbsent(url, replacement) == null;
+        }
+        if (replacement == null) {
+            return leases.remove(url, expected);
+        }
+        return leases.replace(url, expected, replacement);
+    }
+}
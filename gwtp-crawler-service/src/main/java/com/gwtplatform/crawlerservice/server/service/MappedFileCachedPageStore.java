@@ -0,0 +1,293 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+/**
+ * Stores pages in memory-mapped files, so the service can run outside of App Engine and page bodies don't live on the
+ * java heap.
+ * <p/>
+ * Page bodies are kept gzip-compressed, as provided by {@link CachedPage#getCompressedContent()}, and appended to
+ * segment files of {@code segmentBytes} bytes in {@code directory}. An in-memory index maps each URL to the location
+ * of its latest body. When {@code maxSegments} segments are full, the oldest segment is deleted along with the pages
+ * it holds. Segments are read back when the store is created, so pages survive restarts. Pages being fetched are only
+ * kept in the index.
+ */
+public class MappedFileCachedPageStore implements CachedPageStore, Closeable {
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, int segmentBytes) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+
+        private byte[] read(int offset, int length) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            byte[] bytes = new byte[length];
+            view.get(bytes);
+            return bytes;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static final class Entry {
+        private final long fetchDate;
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Entry(long fetchDate, Segment segment, int offset, int length) {
+            this.fetchDate = fetchDate;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private boolean isFetchInProgress() {
+            return segment == null;
+        }
+    }
+
+    private static final String SEGMENT_PREFIX = "pages-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int TOMBSTONE = -1;
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final ConcurrentMap<String, Entry> index = new ConcurrentHashMap<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSegmentNumber;
+    private int position;
+
+    /**
+     * @param directory    The directory holding the segment files. It's created if it doesn't exist.
+     * @param segmentBytes The size of each segment file. A compressed page must fit in a single segment.
+     * @param maxSegments  The maximum number of segment files.
+     * @throws IOException If the directory or the existing segments could not be read.
+     */
+    public MappedFileCachedPageStore(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+
+        Files.createDirectories(directory);
+        load();
+    }
+
+    @Override
+    public CachedPage get(String url) {
+        Entry entry = index.get(url);
+        if (entry == null) {
+            return null;
+        }
+
+        CachedPage cachedPage = new CachedPage();
+        cachedPage.setUrl(url);
+        cachedPage.setFetchDate(new Date(entry.fetchDate));
+        cachedPage.setFetchInProgress(entry.isFetchInProgress());
+        if (!entry.isFetchInProgress() && entry.length > 0) {
+            cachedPage.setCompressedContent(entry.segment.read(entry.offset, entry.length));
+        }
+        return cachedPage;
+    }
+
+    @Override
+    public void save(CachedPage cachedPage) {
+        String url = cachedPage.getUrl();
+        long fetchDate = cachedPage.getFetchDate().getTime();
+
+        if (cachedPage.isFetchInProgress()) {
+            index.put(url, new Entry(fetchDate, null, 0, 0));
+        } else {
+            byte[] body = cachedPage.getCompressedContent();
+            if (body == null) {
+                body = new byte[0];
+            }
+            synchronized (segments) {
+                int offset = append(url, fetchDate, body);
+                index.put(url, new Entry(fetchDate, segments.getLast(), offset, body.length));
+            }
+        }
+    }
+
+    @Override
+    public void delete(CachedPage cachedPage) {
+        // Under the same lock as save, so a concurrent save of the page is either fully before or fully after the
+        // tombstone, in the index as in the log.
+        synchronized (segments) {
+            Entry previous = index.remove(cachedPage.getUrl());
+            if (previous != null) {
+                append(cachedPage.getUrl(), previous.fetchDate, null);
+            }
+        }
+    }
+
+    /**
+     * @return The number of pages in the store, including pages being fetched.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+            segments.clear();
+        }
+    }
+
+    /**
+     * Appends a record to the current segment.
+     *
+     * @param body The compressed body, or {@code null} to record that the page was removed.
+     * @return The offset of the body in the current segment.
+     */
+    private int append(String url, long fetchDate, byte[] body) {
+        byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = body == null ? 0 : body.length;
+        int recordLength = RECORD_OVERHEAD + urlBytes.length + bodyLength;
+        if (recordLength > segmentBytes) {
+            throw new IllegalArgumentException("The page at " + url + " does not fit in a segment.");
+        }
+
+        synchronized (segments) {
+            try {
+                if (segments.isEmpty() || position + recordLength > segmentBytes) {
+                    rollSegment();
+                }
+
+                ByteBuffer buffer = segments.getLast().buffer.duplicate();
+                buffer.position(position);
+                buffer.putInt(urlBytes.length);
+                buffer.put(urlBytes);
+                buffer.putLong(fetchDate);
+                buffer.putInt(body == null ? TOMBSTONE : bodyLength);
+                if (body != null) {
+                    buffer.put(body);
+                }
+
+                position = buffer.position();
+                return position - bodyLength;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        String name = String.format("%s%010d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX);
+        segments.addLast(new Segment(directory.resolve(name), segmentBytes));
+        position = 0;
+
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.removeFirst();
+            index.entrySet().removeIf(entry -> entry.getValue().segment == oldest);
+            oldest.delete();
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        String glob = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        Collections.sort(paths);
+
+        for (Path path : paths) {
+            Segment segment = new Segment(path, segmentBytes);
+            segments.addLast(segment);
+            position = loadSegment(segment);
+
+            String name = path.getFileName().toString();
+            nextSegmentNumber = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length())) + 1;
+        }
+    }
+
+    /**
+     * Adds the records of {@code segment} to the index.
+     *
+     * @return The position following the last record.
+     */
+    private int loadSegment(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+
+        while (buffer.remaining() >= RECORD_OVERHEAD) {
+            int start = buffer.position();
+            int urlLength = buffer.getInt();
+            if (urlLength <= 0 || urlLength > buffer.remaining() - Long.BYTES - Integer.BYTES) {
+                return start;
+            }
+
+            byte[] urlBytes = new byte[urlLength];
+            buffer.get(urlBytes);
+            String url = new String(urlBytes, StandardCharsets.UTF_8);
+            long fetchDate = buffer.getLong();
+            int bodyLength = buffer.getInt();
+
+            if (bodyLength == TOMBSTONE) {
+                index.remove(url);
+            } else if (bodyLength < 0 || bodyLength > buffer.remaining()) {
+                return start;
+            } else {
+                index.put(url, new Entry(fetchDate, segment, buffer.position(), bodyLength));
+                buffer.position(buffer.position() + bodyLength);
+            }
+        }
+        return buffer.position();
+    }
+}
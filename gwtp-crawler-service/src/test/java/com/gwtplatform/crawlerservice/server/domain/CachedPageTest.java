@@ -20,7 +20,9 @@ import java.util.Date;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 public class CachedPageTest {
@@ -56,4 +58,34 @@ public class CachedPageTest {
         // then
         assertTrue(expired);
     }
+
+    @Test
+    public void setContent_compressesAndRestores() {
+        // given
+        CachedPage cachedPage = new CachedPage();
+
+        // when
+        cachedPage.setContent("<html><body>Hello</body></html>");
+
+        // then
+        assertEquals("<html><body>Hello</body></html>", cachedPage.getContent());
+        assertTrue(cachedPage.getCompressedContent().length > 0);
+    }
+
+    @Test
+    public void getContentHash_changesWithContent() {
+        // given
+        CachedPage first = new CachedPage();
+        CachedPage same = new CachedPage();
+        CachedPage other = new CachedPage();
+
+        // when
+        first.setContent("<html>A</html>");
+        same.setContent("<html>A</html>");
+        other.setContent("<html>B</html>");
+
+        // then
+        assertEquals(first.getContentHash(), same.getContentHash());
+        assertNotEquals(first.getContentHash(), other.getContentHash());
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawler.server.SimpleMetricsRegistry;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.service.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.service.FetchLeaseManager;
+import com.gwtplatform.crawlerservice.server.service.FetchLeaseStore;
+import com.gwtplatform.crawlerservice.server.service.LocalFetchLeaseStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchRendererTest {
+    private static class MapCachedPageStore implements CachedPageStore {
+        private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+
+        @Override
+        public CachedPage get(String url) {
+            return pages.get(url);
+        }
+
+        @Override
+        public void save(CachedPage cachedPage) {
+            pages.put(cachedPage.getUrl(), cachedPage);
+        }
+
+        @Override
+        public void delete(CachedPage cachedPage) {
+            pages.remove(cachedPage.getUrl());
+        }
+    }
+
+    private static class StubRenderExecutor extends RenderExecutor {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private volatile int rejections;
+        private volatile long renderMillis;
+        private volatile CountDownLatch released = new CountDownLatch(0);
+
+        StubRenderExecutor(MetricsRegistry metricsRegistry, Logger log) {
+            super(new PageRenderer(new WebClientPool(WebClient::new, new ResourceInterceptor(metricsRegistry),
+                    metricsRegistry, log), metricsRegistry, log), metricsRegistry);
+        }
+
+        @Override
+        public RenderedPage render(String url, RenderPriority priority) throws RenderRejectedException {
+            assertEquals(RenderPriority.PRERENDER, priority);
+            if (attempts.incrementAndGet() <= rejections) {
+                throw new RenderRejectedException("Busy.");
+            }
+
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(renderMillis);
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+            return new RenderedPage("<html>" + url + "</html>", new RenderTimings());
+        }
+    }
+
+    private static final String URL = "http://example.com/#!home";
+
+    private final SimpleMetricsRegistry metricsRegistry = new SimpleMetricsRegistry();
+    private final Logger log = Logger.getLogger(BatchRendererTest.class.getName());
+    private final StubRenderExecutor renderExecutor = new StubRenderExecutor(metricsRegistry, log);
+    private final MapCachedPageStore cachedPageStore = new MapCachedPageStore();
+    private final FetchLeaseManager fetchLeaseManager = createFetchLeaseManager();
+    private final BatchRenderer batchRenderer = createBatchRenderer();
+
+    @After
+    public void tearDown() {
+        renderExecutor.released.countDown();
+        fetchLeaseManager.shutdown();
+    }
+
+    @Test
+    public void toUrls_skipsBlankCommentedAndParameterizedTokens() {
+        // given
+        List<String> tokens = Arrays.asList("home", " /faq ", "", "# generated", "/users/{id}");
+
+        // when
+        List<String> urls = BatchRenderer.toUrls("http://example.com/", tokens);
+
+        // then
+        assertEquals(Arrays.asList("http://example.com/#!home", "http://example.com/#!/faq"), urls);
+    }
+
+    @Test
+    public void render_storesRenderedPages() {
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(1, report.getRendered());
+        assertEquals("<html>" + URL + "</html>", cachedPageStore.get(URL).getContent());
+        assertFalse(fetchLeaseManager.isHeld(URL));
+    }
+
+    @Test
+    public void render_skipsFreshPages() {
+        // given
+        cachedPageStore.save(createPage(URL, new Date()));
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(0, report.getRendered());
+        assertEquals(1, report.getSkipped());
+        assertEquals(0, renderExecutor.attempts.get());
+    }
+
+    @Test
+    public void render_rendersExpiredPages() {
+        // given
+        cachedPageStore.save(createPage(URL, new Date(0)));
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(1, report.getRendered());
+    }
+
+    @Test
+    public void render_forcedRendersFreshPages() {
+        // given
+        cachedPageStore.save(createPage(URL, new Date()));
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, true);
+
+        // then
+        assertEquals(1, report.getRendered());
+        assertEquals(0, report.getSkipped());
+    }
+
+    @Test
+    public void render_skipsPagesLeasedByAnotherRender() {
+        // given
+        fetchLeaseManager.tryAcquire(URL);
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(1, report.getSkipped());
+        assertEquals(0, renderExecutor.attempts.get());
+    }
+
+    @Test
+    public void render_retriesRejectedRenders() {
+        // given
+        renderExecutor.rejections = 3;
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(1, report.getRendered());
+        assertEquals(4, renderExecutor.attempts.get());
+    }
+
+    @Test
+    public void render_failsPagesRejectedTooManyTimes() {
+        // given
+        renderExecutor.rejections = Integer.MAX_VALUE;
+
+        // when
+        BatchReport report = batchRenderer.render(Collections.singletonList(URL), 1, false);
+
+        // then
+        assertEquals(0, report.getRendered());
+        assertEquals(Collections.singletonList(URL), report.getFailedUrls());
+        assertTrue(renderExecutor.attempts.get() > 1);
+        assertFalse(fetchLeaseManager.isHeld(URL));
+    }
+
+    @Test(timeout = 10000)
+    public void render_boundsConcurrentRenders() {
+        // given
+        renderExecutor.renderMillis = 20;
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 12; ++i) {
+            urls.add(URL + i);
+        }
+
+        // when
+        BatchReport report = batchRenderer.render(urls, 3, false);
+
+        // then
+        assertEquals(12, report.getRendered());
+        assertTrue(renderExecutor.maxActive.get() <= 3);
+    }
+
+    @Test(timeout = 10000)
+    public void submit_rejectsBatchesWhileOneIsInProgress() throws InterruptedException {
+        // given
+        renderExecutor.released = new CountDownLatch(1);
+        assertTrue(batchRenderer.submit(Collections.singletonList(URL), 1, false));
+
+        // when
+        boolean submitted = batchRenderer.submit(Collections.singletonList(URL + "other"), 1, false);
+
+        // then
+        assertFalse(submitted);
+        renderExecutor.released.countDown();
+        while (batchRenderer.isBatchInProgress()) {
+            Thread.sleep(10);
+        }
+        assertEquals("<html>" + URL + "</html>", cachedPageStore.get(URL).getContent());
+    }
+
+    private FetchLeaseManager createFetchLeaseManager() {
+        return Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(FetchLeaseStore.class).toInstance(new LocalFetchLeaseStore());
+                bind(MetricsRegistry.class).toInstance(metricsRegistry);
+            }
+        }).getInstance(FetchLeaseManager.class);
+    }
+
+    private BatchRenderer createBatchRenderer() {
+        BatchRenderer renderer = new BatchRenderer(renderExecutor, cachedPageStore, fetchLeaseManager, metricsRegistry,
+                log);
+        renderer.setRetryDelayMillis(1);
+        return renderer;
+    }
+
+    private CachedPage createPage(String url, Date fetchDate) {
+        CachedPage cachedPage = new CachedPage();
+        cachedPage.setUrl(url);
+        cachedPage.setFetchDate(fetchDate);
+        cachedPage.setFetchInProgress(false);
+        cachedPage.setContent("<html>cached</html>");
+        return cachedPage;
+    }
+}
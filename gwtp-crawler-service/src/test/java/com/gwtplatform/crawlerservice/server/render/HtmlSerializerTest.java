@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.StringWebResponse;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HTMLParser;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HtmlSerializerTest {
+    private static final String TRANSITIONAL_DOCTYPE =
+            "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" "
+            + "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">";
+
+    private final WebClient webClient = new WebClient();
+
+    @After
+    public void tearDown() {
+        webClient.close();
+    }
+
+    @Test
+    public void serialize_html5Doctype() throws IOException {
+        // when
+        String html = serialize("<!DOCTYPE html><html><head></head><body></body></html>");
+
+        // then
+        assertEquals("<!DOCTYPE html><html><head></head><body></body></html>", html);
+    }
+
+    @Test
+    public void serialize_keepsDoctypeIdentifiers() throws IOException {
+        // when
+        String html = serialize(TRANSITIONAL_DOCTYPE + "<html><head></head><body></body></html>");
+
+        // then
+        assertTrue(html, html.startsWith(TRANSITIONAL_DOCTYPE + "<html"));
+    }
+
+    @Test
+    public void serialize_escapesText() throws IOException {
+        // when
+        String html = serialize("<html><body><p>a &amp; b &lt;c&gt; \"d\"</p></body></html>");
+
+        // then
+        assertTrue(html, html.contains("<p>a &amp; b &lt;c&gt; \"d\"</p>"));
+    }
+
+    @Test
+    public void serialize_escapesAttributes() throws IOException {
+        // when
+        String html = serialize("<html><body><a title=\"a &amp; &quot;b&quot; <c>\">x</a></body></html>");
+
+        // then
+        assertTrue(html, html.contains("<a title=\"a &amp; &quot;b&quot; <c>\">x</a>"));
+    }
+
+    @Test
+    public void serialize_voidElementsAreNotClosed() throws IOException {
+        // when
+        String html = serialize("<html><body><p>a<br>b</p><img src=\"x.png\"></body></html>");
+
+        // then
+        assertTrue(html, html.contains("<p>a<br>b</p><img src=\"x.png\">"));
+        assertTrue(html, !html.contains("</br>") && !html.contains("</img>"));
+    }
+
+    @Test
+    public void serialize_dropsStylesAndScripts() throws IOException {
+        // when
+        String html = serialize("<html><head><style>p > a { color: red; }</style>"
+                + "<script>var a = 1 < 2;</script></head><body></body></html>");
+
+        // then
+        assertEquals("<html><head></head><body></body></html>", html);
+    }
+
+    @Test
+    public void serialize_keepsStructuredDataUnescaped() throws IOException {
+        // given
+        String json = "{\"name\": \"a & b <c>\"}";
+
+        // when
+        String html = serialize("<html><head><script type=\"application/ld+json\">" + json
+                + "</script></head><body></body></html>");
+
+        // then
+        assertTrue(html, html.contains("<script type=\"application/ld+json\">" + json + "</script>"));
+    }
+
+    private String serialize(String content) throws IOException {
+        StringWebResponse response = new StringWebResponse(content, new URL("http://localhost/"));
+        HtmlPage page = HTMLParser.parseHtml(response, webClient.getCurrentWindow());
+
+        StringBuilder html = new StringBuilder();
+        HtmlSerializer.serialize(page, html);
+        return html.toString();
+    }
+}
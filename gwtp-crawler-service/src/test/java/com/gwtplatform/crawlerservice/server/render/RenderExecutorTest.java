@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.gwtplatform.crawler.server.MetricsRegistry;
+import com.gwtplatform.crawler.server.SimpleMetricsRegistry;
+import com.gwtplatform.crawlerservice.server.RenderParallelism;
+import com.gwtplatform.crawlerservice.server.RenderTimeoutMillis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RenderExecutorTest {
+    private static class BlockingPageRenderer extends PageRenderer {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        BlockingPageRenderer(MetricsRegistry metricsRegistry, Logger log) {
+            super(new WebClientPool(WebClient::new, new ResourceInterceptor(metricsRegistry), metricsRegistry, log),
+                    metricsRegistry, log);
+        }
+
+        @Override
+        public RenderedPage render(String url) throws IOException {
+            started.countDown();
+            // Keeps the render thread busy until the test ends, like a render that ignores interrupts.
+            while (released.getCount() > 0) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+            throw new IOException("Released.");
+        }
+    }
+
+    private static final long TIMEOUT_MILLIS = 200;
+
+    private final SimpleMetricsRegistry metricsRegistry = new SimpleMetricsRegistry();
+    private final BlockingPageRenderer pageRenderer =
+            new BlockingPageRenderer(metricsRegistry, Logger.getLogger(RenderExecutorTest.class.getName()));
+    private final RenderExecutor renderExecutor = createRenderExecutor();
+
+    @After
+    public void tearDown() {
+        pageRenderer.released.countDown();
+        renderExecutor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void render_cancelsRendersThatTimeOut() throws IOException, InterruptedException {
+        // when
+        try {
+            renderExecutor.render("http://example.com/", RenderPriority.FIRST_RENDER);
+            fail();
+        } catch (RenderRejectedException e) {
+            // expected
+        }
+
+        // then
+        assertTrue(pageRenderer.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void render_removesQueuedRendersThatTimeOut() throws IOException, InterruptedException {
+        // given
+        Thread blocking = new Thread(() -> {
+            try {
+                renderExecutor.render("http://example.com/blocking", RenderPriority.FIRST_RENDER);
+            } catch (IOException | RenderRejectedException e) {
+                // expected
+            }
+        });
+        blocking.start();
+        assertTrue(pageRenderer.started.await(5, TimeUnit.SECONDS));
+
+        // when
+        try {
+            renderExecutor.render("http://example.com/queued", RenderPriority.FIRST_RENDER);
+            fail();
+        } catch (RenderRejectedException e) {
+            // expected
+        }
+
+        // then
+        assertEquals(0, renderExecutor.getQueueDepth());
+        assertEquals(0, renderExecutor.getQueueDepth(RenderPriority.FIRST_RENDER));
+        assertEquals(1, renderExecutor.getStartedCount());
+        blocking.join();
+    }
+
+    private RenderExecutor createRenderExecutor() {
+        return Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(PageRenderer.class).toInstance(pageRenderer);
+                bind(MetricsRegistry.class).toInstance(metricsRegistry);
+                bindConstant().annotatedWith(RenderParallelism.class).to(1);
+                bindConstant().annotatedWith(RenderTimeoutMillis.class).to(TIMEOUT_MILLIS);
+            }
+        }).getInstance(RenderExecutor.class);
+    }
+}
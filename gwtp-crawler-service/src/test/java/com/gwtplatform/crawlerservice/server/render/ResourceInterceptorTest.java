@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.WebConnection;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.gwtplatform.crawler.server.SimpleMetricsRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceInterceptorTest {
+    private final ResourceInterceptor resourceInterceptor = new ResourceInterceptor(new SimpleMetricsRegistry());
+
+    @Test
+    public void isBlocked_imagesFontsAndAnalytics() {
+        assertTrue(resourceInterceptor.isBlocked("http://example.com/images/logo.PNG"));
+        assertTrue(resourceInterceptor.isBlocked("http://example.com/fonts/roboto.woff2?v=3"));
+        assertTrue(resourceInterceptor.isBlocked("https://www.google-analytics.com/analytics.js"));
+    }
+
+    @Test
+    public void isBlocked_applicationResources() {
+        assertFalse(resourceInterceptor.isBlocked("http://example.com/app/app.nocache.js"));
+        assertFalse(resourceInterceptor.isBlocked("http://example.com/app/0123456789ABCDEF.cache.js"));
+        assertFalse(resourceInterceptor.isBlocked("http://example.com/rest/items?format=png"));
+    }
+
+    @Test
+    public void intercept_replaysGzippedImmutableResource() throws IOException {
+        String script = "var permutation = 1;";
+        List<NameValuePair> headers = Arrays.asList(
+                new NameValuePair("Content-Type", "application/javascript"),
+                new NameValuePair("Content-Encoding", "gzip"));
+        WebConnection connection = new WebConnection() {
+            private boolean called;
+
+            @Override
+            public WebResponse getResponse(WebRequest request) throws IOException {
+                assertFalse("the resource must be fetched once", called);
+                called = true;
+                return new WebResponse(new WebResponseData(gzip(script), 200, "OK", headers), request, 0);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        WebRequest request = new WebRequest(new URL("http://example.com/app/0123456789ABCDEF.cache.js"));
+
+        WebResponse fetched = resourceInterceptor.intercept(request, connection);
+        WebResponse replayed = resourceInterceptor.intercept(request, connection);
+
+        assertEquals(script, fetched.getContentAsString());
+        assertEquals(script, replayed.getContentAsString());
+        assertEquals("application/javascript", replayed.getResponseHeaderValue("Content-Type"));
+        assertNull(replayed.getResponseHeaderValue("Content-Encoding"));
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
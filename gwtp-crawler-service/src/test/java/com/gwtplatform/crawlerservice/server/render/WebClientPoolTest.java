@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gwtplatform.crawler.server.SimpleMetricsRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class WebClientPoolTest {
+    private static final int FAILURES = 5;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final SimpleMetricsRegistry metricsRegistry = new SimpleMetricsRegistry();
+    private final WebClientPool webClientPool = new WebClientPool(() -> {
+        if (attempts.incrementAndGet() <= FAILURES) {
+            throw new IllegalStateException("Client creation failed");
+        }
+        return new WebClient();
+    }, new ResourceInterceptor(metricsRegistry), metricsRegistry, Logger.getLogger(WebClientPoolTest.class.getName()));
+
+    @Test(timeout = 10000)
+    public void borrow_failedCreationsDoNotTakeSlots() throws InterruptedException {
+        // given
+        for (int i = 0; i < FAILURES; ++i) {
+            try {
+                webClientPool.borrow();
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+
+        // when
+        WebClient webClient = webClientPool.borrow();
+
+        // then
+        assertNotNull(webClient);
+        assertEquals(1, webClientPool.getInUseCount());
+        webClientPool.release(webClient, true);
+        assertEquals(0, webClientPool.getInUseCount());
+    }
+
+    @Test(timeout = 10000)
+    public void prewarm_stopsAtTheFirstFailure() {
+        // when
+        webClientPool.prewarm();
+
+        // then
+        assertEquals(0, webClientPool.getIdleCount());
+        assertEquals(0, webClientPool.getInUseCount());
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.gwtplatform.crawler.server.SimpleMetricsRegistry;
+import com.gwtplatform.crawlerservice.server.domain.FetchLease;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FetchLeaseManagerTest {
+    private static final String URL = "http://example.com/#!home";
+
+    private final LocalFetchLeaseStore fetchLeaseStore = new LocalFetchLeaseStore();
+    private final FetchLeaseManager fetchLeaseManager = new FetchLeaseManager(fetchLeaseStore,
+            new SimpleMetricsRegistry());
+
+    @After
+    public void tearDown() {
+        fetchLeaseManager.shutdown();
+    }
+
+    @Test
+    public void tryAcquire_heldLeaseIsContended() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+
+        // when
+        FetchLease secondLease = fetchLeaseManager.tryAcquire(URL);
+
+        // then
+        assertNotNull(lease);
+        assertNull(secondLease);
+        assertTrue(fetchLeaseManager.isHeld(URL));
+        assertEquals(1, fetchLeaseManager.getAcquiredCount());
+        assertEquals(1, fetchLeaseManager.getContendedCount());
+    }
+
+    @Test
+    public void tryAcquire_takesOverExpiredLease() {
+        // given
+        FetchLease expiredLease = new FetchLease(URL, "other-node", System.currentTimeMillis() - 1);
+        fetchLeaseStore.compareAndSet(URL, null, expiredLease);
+
+        // when
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+
+        // then
+        assertNotNull(lease);
+        assertEquals(fetchLeaseManager.getOwnerId(), fetchLeaseStore.get(URL).getOwnerId());
+        assertEquals(1, fetchLeaseManager.getTakenOverCount());
+    }
+
+    @Test
+    public void release_leaseTakenOverIsLost() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+        FetchLease otherLease = new FetchLease(URL, "other-node", System.currentTimeMillis() + 60000);
+        fetchLeaseStore.compareAndSet(URL, lease, otherLease);
+
+        // when
+        fetchLeaseManager.release(lease);
+
+        // then
+        assertEquals(otherLease, fetchLeaseStore.get(URL));
+        assertEquals(1, fetchLeaseManager.getLostCount());
+    }
+
+    @Test
+    public void release_freesLease() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+
+        // when
+        fetchLeaseManager.release(lease);
+
+        // then
+        assertFalse(fetchLeaseManager.isHeld(URL));
+        assertNotNull(fetchLeaseManager.tryAcquire(URL));
+    }
+
+    @Test
+    public void renewHeldLeases_extendsHeldLeases() throws InterruptedException {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+        Thread.sleep(10);
+
+        // when
+        fetchLeaseManager.renewHeldLeases();
+
+        // then
+        FetchLease renewed = fetchLeaseStore.get(URL);
+        assertEquals(fetchLeaseManager.getOwnerId(), renewed.getOwnerId());
+        assertTrue(renewed.getExpiresAt() > lease.getExpiresAt());
+        assertEquals(1, fetchLeaseManager.getRenewedCount());
+    }
+
+    @Test
+    public void renewHeldLeases_skipsLeasesTakenOver() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+        FetchLease otherLease = new FetchLease(URL, "other-node", System.currentTimeMillis() + 60000);
+        fetchLeaseStore.compareAndSet(URL, lease, otherLease);
+
+        // when
+        fetchLeaseManager.renewHeldLeases();
+
+        // then
+        assertEquals(otherLease, fetchLeaseStore.get(URL));
+        assertEquals(0, fetchLeaseManager.getRenewedCount());
+    }
+
+    @Test
+    public void release_freesRenewedLease() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+        fetchLeaseManager.renewHeldLeases();
+
+        // when
+        fetchLeaseManager.release(lease);
+
+        // then
+        assertFalse(fetchLeaseManager.isHeld(URL));
+        assertEquals(0, fetchLeaseManager.getLostCount());
+    }
+
+    @Test
+    public void renewHeldLeases_skipsReleasedLeases() {
+        // given
+        FetchLease lease = fetchLeaseManager.tryAcquire(URL);
+        fetchLeaseManager.release(lease);
+
+        // when
+        fetchLeaseManager.renewHeldLeases();
+
+        // then
+        assertNull(fetchLeaseStore.get(URL));
+        assertEquals(0, fetchLeaseManager.getRenewedCount());
+    }
+}
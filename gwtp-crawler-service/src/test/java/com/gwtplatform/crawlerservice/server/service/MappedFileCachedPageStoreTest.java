@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileCachedPageStoreTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final int PAGE_COUNT = 200;
+    private static final String URL = "http://example.com/#!home";
+    private static final String OTHER_URL = "http://example.com/#!other";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsSavedPage() throws IOException {
+        // given
+        try (MappedFileCachedPageStore store = createStore(4)) {
+            store.save(createPage(URL, "<html>home</html>", false));
+
+            // when
+            CachedPage cachedPage = store.get(URL);
+
+            // then
+            assertEquals(URL, cachedPage.getUrl());
+            assertEquals("<html>home</html>", cachedPage.getContent());
+            assertFalse(cachedPage.isFetchInProgress());
+        }
+    }
+
+    @Test
+    public void get_fetchInProgress() throws IOException {
+        // given
+        try (MappedFileCachedPageStore store = createStore(4)) {
+            store.save(createPage(URL, null, true));
+
+            // when
+            CachedPage cachedPage = store.get(URL);
+
+            // then
+            assertTrue(cachedPage.isFetchInProgress());
+            assertNull(cachedPage.getContent());
+        }
+    }
+
+    @Test
+    public void get_afterReopen_returnsLatestPages() throws IOException {
+        // given
+        Path directory = folder.getRoot().toPath();
+        try (MappedFileCachedPageStore store = new MappedFileCachedPageStore(directory, SEGMENT_BYTES, 4)) {
+            store.save(createPage(URL, "first", false));
+            store.save(createPage(URL, "second", false));
+            store.save(createPage(OTHER_URL, "other", false));
+            store.delete(store.get(OTHER_URL));
+        }
+
+        // when
+        try (MappedFileCachedPageStore store = new MappedFileCachedPageStore(directory, SEGMENT_BYTES, 4)) {
+            // then
+            assertEquals("second", store.get(URL).getContent());
+            assertNull(store.get(OTHER_URL));
+        }
+    }
+
+    @Test
+    public void delete_concurrentWithSave_reopensToTheSameState() throws Exception {
+        // given
+        Path directory = folder.getRoot().toPath();
+        CachedPage lastSaved;
+        try (MappedFileCachedPageStore store = new MappedFileCachedPageStore(directory, SEGMENT_BYTES, 1000)) {
+            Thread deleter = new Thread(() -> {
+                for (int i = 0; i < PAGE_COUNT; ++i) {
+                    store.delete(createPage(URL, null, false));
+                }
+            });
+
+            // when
+            deleter.start();
+            for (int i = 0; i < PAGE_COUNT; ++i) {
+                store.save(createPage(URL, "page " + i, false));
+            }
+            deleter.join();
+            lastSaved = store.get(URL);
+        }
+
+        // then
+        try (MappedFileCachedPageStore store = new MappedFileCachedPageStore(directory, SEGMENT_BYTES, 1000)) {
+            CachedPage reopened = store.get(URL);
+            assertEquals(lastSaved == null, reopened == null);
+            if (lastSaved != null) {
+                assertEquals(lastSaved.getContent(), reopened.getContent());
+            }
+        }
+    }
+
+    @Test
+    public void save_whenSegmentsAreFull_evictsOldestPages() throws IOException {
+        // given
+        try (MappedFileCachedPageStore store = createStore(2)) {
+            store.save(createPage(URL, "home", false));
+
+            // when
+            for (int i = 0; i < PAGE_COUNT; ++i) {
+                store.save(createPage(OTHER_URL + i, "page " + i, false));
+            }
+
+            // then
+            assertNull(store.get(URL));
+            assertEquals("page " + (PAGE_COUNT - 1), store.get(OTHER_URL + (PAGE_COUNT - 1)).getContent());
+            assertTrue(store.size() < PAGE_COUNT);
+        }
+    }
+
+    private MappedFileCachedPageStore createStore(int maxSegments) throws IOException {
+        return new MappedFileCachedPageStore(folder.getRoot().toPath(), SEGMENT_BYTES, maxSegments);
+    }
+
+    private CachedPage createPage(String url, String content, boolean fetchInProgress) {
+        CachedPage cachedPage = new CachedPage();
+        cachedPage.setUrl(url);
+        cachedPage.setFetchDate(new Date());
+        cachedPage.setContent(content);
+        cachedPage.setFetchInProgress(fetchInProgress);
+        return cachedPage;
+    }
+}